@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2016 Zheng Li <https://lizheng.me>
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package me.lizheng.deckview.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of computing the stack transforms for one frame, against the number of items
+ * and the scroll velocity.  Each invocation advances the scroll by one frame, bouncing between
+ * the min and max scroll, and walks the stack from the front most visible task like DeckView does
+ * when it synchronizes its views.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DeckStackLayoutBenchmark {
+
+    // A 1080p portrait phone with a status bar
+    static final int WindowWidth = 1080;
+    static final int WindowHeight = 1920;
+    static final int TopInset = 72;
+
+    @Param({"10", "1000", "100000"})
+    int itemCount;
+
+    // The scroll velocity, in curve progress per frame
+    @Param({"0", "0.05", "0.5"})
+    float velocity;
+
+    DeckStackLayout mLayout;
+    DeckTransform[] mTransforms;
+    float mStackScroll;
+    float mDirection = 1f;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        mLayout = new DeckStackLayout(0.03333f, 42, 168, 3, 24);
+        mLayout.computeRects(WindowWidth, WindowHeight,
+                new DeckRect(0, TopInset, WindowWidth, WindowHeight));
+        mLayout.computeMinMaxScroll(itemCount, false, false);
+        mStackScroll = mLayout.initialScrollP;
+
+        mTransforms = new DeckTransform[itemCount];
+        for (int i = 0; i < itemCount; i++) {
+            mTransforms[i] = new DeckTransform();
+        }
+    }
+
+    /**
+     * Advances the scroll by one frame, and computes the transforms of the visible range.
+     */
+    @Benchmark
+    public void frame(Blackhole bh) {
+        mStackScroll += mDirection * velocity;
+        if (mStackScroll > mLayout.maxScrollP) {
+            mStackScroll = mLayout.maxScrollP;
+            mDirection = -1f;
+        } else if (mStackScroll < mLayout.minScrollP) {
+            mStackScroll = mLayout.minScrollP;
+            mDirection = 1f;
+        }
+
+        int startIndex = mLayout.getFrontMostVisibleIndex(itemCount, mStackScroll);
+        int frontMostVisibleIndex = -1;
+        int backMostVisibleIndex = -1;
+        DeckTransform prevTransform = null;
+        for (int i = startIndex; i >= 0; i--) {
+            DeckTransform transform = mLayout.getStackTransform(mLayout.getTaskProgress(i),
+                    mStackScroll, mTransforms[i], prevTransform);
+            if (transform.visible) {
+                if (frontMostVisibleIndex < 0) {
+                    frontMostVisibleIndex = i;
+                }
+                backMostVisibleIndex = i;
+            } else if (backMostVisibleIndex != -1) {
+                // We've reached the end of the visible range
+                break;
+            }
+            prevTransform = transform;
+        }
+        bh.consume(frontMostVisibleIndex);
+        bh.consume(backMostVisibleIndex);
+    }
+
+    /**
+     * Measures the screen y to curve progress lookup done for every touch event.
+     */
+    @Benchmark
+    public float screenYToCurveProgress() {
+        return mLayout.screenYToCurveProgress(WindowHeight / 2);
+    }
+}
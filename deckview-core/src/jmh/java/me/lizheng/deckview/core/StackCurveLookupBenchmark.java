@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2016 Zheng Li <https://lizheng.me>
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package me.lizheng.deckview.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the per pixel curve lookups of DeckStackLayout against interpolating the StackCurve
+ * tables directly.  Each invocation takes the next of a fixed set of random inputs, so that the
+ * lookups can't be hoisted out of the loop.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StackCurveLookupBenchmark {
+
+    static final int WindowWidth = 1080;
+    static final int WindowHeight = 1920;
+    static final int TopInset = 72;
+    static final int InputCount = 1024;
+
+    DeckStackLayout mLayout;
+    StackCurve mCurve;
+    float[] mProgress = new float[InputCount];
+    int[] mScreenY = new int[InputCount];
+    int mIndex;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        mLayout = new DeckStackLayout(0.03333f, 42, 168, 3, 24);
+        mLayout.computeRects(WindowWidth, WindowHeight,
+                new DeckRect(0, TopInset, WindowWidth, WindowHeight));
+        mCurve = mLayout.getCurve();
+
+        Random random = new Random(0);
+        DeckRect rect = mLayout.stackVisibleRect;
+        for (int i = 0; i < InputCount; i++) {
+            mProgress[i] = random.nextFloat();
+            mScreenY[i] = rect.top + random.nextInt(rect.height() + 1);
+        }
+    }
+
+    int nextIndex() {
+        mIndex = (mIndex + 1) & (InputCount - 1);
+        return mIndex;
+    }
+
+    @Benchmark
+    public int progressToScreenYTable() {
+        return mLayout.curveProgressToScreenY(mProgress[nextIndex()]);
+    }
+
+    @Benchmark
+    public int progressToScreenYCurve() {
+        DeckRect rect = mLayout.stackVisibleRect;
+        return rect.top + (int) (mCurve.progressToX(mProgress[nextIndex()]) * rect.height());
+    }
+
+    @Benchmark
+    public float screenYToProgressTable() {
+        return mLayout.screenYToCurveProgress(mScreenY[nextIndex()]);
+    }
+
+    @Benchmark
+    public float screenYToProgressCurve() {
+        DeckRect rect = mLayout.stackVisibleRect;
+        return mCurve.xToProgress((float) (mScreenY[nextIndex()] - rect.top) / rect.height());
+    }
+}
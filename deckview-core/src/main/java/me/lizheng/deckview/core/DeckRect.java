@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2016 Zheng Li <https://lizheng.me>
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package me.lizheng.deckview.core;
+
+/**
+ * A plain integer rect, used by the layout math so that it does not depend on the Android
+ * framework.  It mirrors the subset of android.graphics.Rect that the layout needs.
+ */
+public class DeckRect {
+    public int left;
+    public int top;
+    public int right;
+    public int bottom;
+
+    public DeckRect() {
+        // Do nothing
+    }
+
+    public DeckRect(int left, int top, int right, int bottom) {
+        set(left, top, right, bottom);
+    }
+
+    public void set(int left, int top, int right, int bottom) {
+        this.left = left;
+        this.top = top;
+        this.right = right;
+        this.bottom = bottom;
+    }
+
+    public void set(DeckRect r) {
+        set(r.left, r.top, r.right, r.bottom);
+    }
+
+    public void setEmpty() {
+        left = top = right = bottom = 0;
+    }
+
+    public int width() {
+        return right - left;
+    }
+
+    public int height() {
+        return bottom - top;
+    }
+
+    public int centerX() {
+        return (left + right) >> 1;
+    }
+
+    public int centerY() {
+        return (top + bottom) >> 1;
+    }
+
+    public void offset(int dx, int dy) {
+        left += dx;
+        top += dy;
+        right += dx;
+        bottom += dy;
+    }
+
+    public void inset(int dx, int dy) {
+        left += dx;
+        top += dy;
+        right -= dx;
+        bottom -= dy;
+    }
+
+    /**
+     * Scales the rect about its center.
+     */
+    public void scaleAboutCenter(float scale) {
+        if (scale != 1.0f) {
+            int cx = centerX();
+            int cy = centerY();
+            offset(-cx, -cy);
+            left = (int) (left * scale + 0.5f);
+            top = (int) (top * scale + 0.5f);
+            right = (int) (right * scale + 0.5f);
+            bottom = (int) (bottom * scale + 0.5f);
+            offset(cx, cy);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof DeckRect)) return false;
+        DeckRect r = (DeckRect) o;
+        return left == r.left && top == r.top && right == r.right && bottom == r.bottom;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * (31 * left + top) + right) + bottom;
+    }
+
+    @Override
+    public String toString() {
+        return "DeckRect(" + left + ", " + top + " - " + right + ", " + bottom + ")";
+    }
+}
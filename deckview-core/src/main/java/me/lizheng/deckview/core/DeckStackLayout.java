@@ -0,0 +1,289 @@
+/*
+ * Copyright (C) 2016 Zheng Li <https://lizheng.me>
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package me.lizheng.deckview.core;
+
+/* The layout math of the stack, in plain Java so that it can run and be measured off device.
+ *
+ * We are using a curve that defines the curve of the tasks as that go back in the recents list.
+ * The curve is defined such that at curve progress p = 0 is the end of the curve (the top of the
+ * stack rect), and p = 1 at the start of the curve and the bottom of the stack rect.
+ *
+ * Tasks are identified by their index, the task at index i sits at progress
+ * getTaskProgress(i) along the curve.
+ */
+public class DeckStackLayout {
+
+    // The progress of the top of the front most card
+    static final float FrontMostCardTopP = 0.5f;
+
+    // The curve the tasks follow
+    final StackCurve mCurve;
+
+    // The config values the layout depends on
+    final float mWidthPaddingPct;
+    final int mTopPaddingPx;
+    final int mTaskBarHeight;
+    final int mMinZ;
+    final int mMaxZ;
+
+    // The various rects that define the stack view
+    public final DeckRect viewRect = new DeckRect();
+    public final DeckRect stackVisibleRect = new DeckRect();
+    public final DeckRect stackRect = new DeckRect();
+    public final DeckRect taskRect = new DeckRect();
+
+    // The min/max scroll progress
+    public float minScrollP;
+    public float maxScrollP;
+    public float initialScrollP;
+    int mWithinAffiliationOffset;
+    int mBetweenAffiliationOffset;
+    float mTaskProgressStep;
+
+    // The curve lookups precomputed for the height of the stack visible rect.  The screen y table
+    // has the progress at each pixel from the top of the rect, and the progress table has the y
+    // offset at each 1/height step of progress.
+    int mTablesHeight;
+    float[] mScreenYToProgress;
+    float[] mProgressToOffsetY;
+
+    public DeckStackLayout(float widthPaddingPct, int topPaddingPx, int taskBarHeight, int minZ,
+                           int maxZ) {
+        this(StackCurve.getDefault(), widthPaddingPct, topPaddingPx, taskBarHeight, minZ, maxZ);
+    }
+
+    public DeckStackLayout(StackCurve curve, float widthPaddingPct, int topPaddingPx,
+                           int taskBarHeight, int minZ, int maxZ) {
+        mCurve = curve;
+        mWidthPaddingPct = widthPaddingPct;
+        mTopPaddingPx = topPaddingPx;
+        mTaskBarHeight = taskBarHeight;
+        mMinZ = minZ;
+        mMaxZ = maxZ;
+    }
+
+    /**
+     * Returns the curve the tasks follow.
+     */
+    public StackCurve getCurve() {
+        return mCurve;
+    }
+
+    /**
+     * Computes the stack and task rects
+     */
+    public void computeRects(int windowWidth, int windowHeight, DeckRect taskStackBounds) {
+        // Compute the stack rects
+        viewRect.set(0, 0, windowWidth, windowHeight);
+        stackRect.set(taskStackBounds);
+        stackVisibleRect.set(taskStackBounds);
+        stackVisibleRect.bottom = viewRect.bottom;
+        updateCurveTables();
+
+        int widthPadding = (int) (mWidthPaddingPct * stackRect.width());
+        int heightPadding = mTopPaddingPx;
+        stackRect.inset(widthPadding, heightPadding);
+
+        // Compute the task rect
+        int size = stackRect.width();
+        int left = stackRect.left + (stackRect.width() - size) / 2;
+        taskRect.set(left, stackRect.top, left + size, stackRect.top + size);
+
+        // Update the affiliation offsets
+        float visibleTaskPct = 0.5f;
+        mWithinAffiliationOffset = mTaskBarHeight;
+        mBetweenAffiliationOffset = (int) (visibleTaskPct * taskRect.height());
+    }
+
+    /**
+     * Computes the minimum and maximum scroll progress values for the given number of tasks.
+     */
+    public void computeMinMaxScroll(int taskCount, boolean launchedWithAltTab,
+                                    boolean launchedFromHome) {
+        // Return early if we have no tasks
+        if (taskCount == 0) {
+            minScrollP = maxScrollP = 0;
+            return;
+        }
+
+        // Note that we should account for the scale difference of the offsets at the screen bottom
+        int taskHeight = taskRect.height();
+        float pAtBottomOfStackRect = screenYToCurveProgress(stackVisibleRect.bottom);
+        float pBetweenAffiliateOffset = pAtBottomOfStackRect -
+                screenYToCurveProgress(stackVisibleRect.bottom - mBetweenAffiliationOffset);
+        float pTaskHeightOffset = pAtBottomOfStackRect -
+                screenYToCurveProgress(stackVisibleRect.bottom - taskHeight);
+        float pNavBarOffset = pAtBottomOfStackRect -
+                screenYToCurveProgress(stackVisibleRect.bottom - (stackVisibleRect.bottom -
+                        stackRect.bottom));
+
+        // Update the task offsets
+        mTaskProgressStep = pBetweenAffiliateOffset;
+        float pAtFrontMostCardTop = getTaskProgress(taskCount - 1);
+
+        maxScrollP = pAtFrontMostCardTop - ((1f - pTaskHeightOffset - pNavBarOffset));
+        minScrollP = taskCount == 1 ? Math.max(maxScrollP, 0f) : 0f;
+
+        if (launchedWithAltTab && launchedFromHome) {
+            // Center the top most task, since that will be focused first
+            initialScrollP = maxScrollP;
+        } else {
+            initialScrollP = pAtFrontMostCardTop - 0.825f;
+        }
+
+        initialScrollP = Math.min(maxScrollP, Math.max(0, initialScrollP));
+    }
+
+    /**
+     * Returns the progress of the task at the given index, as of the last computeMinMaxScroll().
+     */
+    public float getTaskProgress(int index) {
+        return FrontMostCardTopP + index * mTaskProgressStep;
+    }
+
+    /**
+     * Returns the index of the front most task whose top is not below the stack at the given
+     * scroll, computed from the task progress step instead of walking the tasks in front of it.
+     * Returns -1 if there are no tasks.
+     */
+    public int getFrontMostVisibleIndex(int taskCount, float stackScroll) {
+        if (taskCount == 0) return -1;
+        if (mTaskProgressStep <= 0) return taskCount - 1;
+
+        // A task is below the stack once its relative progress is past 1
+        float maxTaskProgress = 1f + stackScroll;
+        int index = (int) Math.floor((maxTaskProgress - FrontMostCardTopP) / mTaskProgressStep);
+        index = Math.max(0, Math.min(taskCount - 1, index));
+
+        // Correct for any rounding in the division
+        while (index < taskCount - 1 && getTaskProgress(index + 1) - stackScroll <= 1f) {
+            index++;
+        }
+        while (index > 0 && getTaskProgress(index) - stackScroll > 1f) {
+            index--;
+        }
+        return index;
+    }
+
+    /**
+     * Update/get the transform
+     */
+    public DeckTransform getStackTransform(float taskProgress, float stackScroll,
+                                           DeckTransform transformOut,
+                                           DeckTransform prevTransform) {
+        float pTaskRelative = taskProgress - stackScroll;
+        float pBounded = Math.max(0, Math.min(pTaskRelative, 1f));
+
+        // If the task top is outside of the bounds below the screen, then immediately reset it
+        if (pTaskRelative > 1f) {
+            transformOut.reset();
+            transformOut.rect.set(taskRect);
+            return transformOut;
+        }
+
+        // The check for the top is trickier, since we want to show the next task if it is at all
+        // visible, even if p < 0.
+        if (pTaskRelative < 0f) {
+            if (prevTransform != null && Float.compare(prevTransform.p, 0f) <= 0) {
+                transformOut.reset();
+                transformOut.rect.set(taskRect);
+                return transformOut;
+            }
+        }
+
+        float scale = curveProgressToScale(pBounded);
+        int scaleYOffset = (int) (((1f - scale) * taskRect.height()) / 2);
+        transformOut.scale = scale;
+        transformOut.translationY = curveProgressToScreenY(pBounded) - stackVisibleRect.top -
+                scaleYOffset;
+        transformOut.translationZ = Math.max(mMinZ, mMinZ + (pBounded * (mMaxZ - mMinZ)));
+        transformOut.rect.set(taskRect);
+        transformOut.rect.offset(0, transformOut.translationY);
+        transformOut.rect.scaleAboutCenter(transformOut.scale);
+        transformOut.visible = true;
+        transformOut.p = pTaskRelative;
+
+        return transformOut;
+    }
+
+    /**
+     * Rebuilds the curve lookup tables if the height of the stack visible rect changed.
+     */
+    void updateCurveTables() {
+        int height = stackVisibleRect.height();
+        if (height == mTablesHeight) return;
+
+        mTablesHeight = height;
+        if (height <= 0) {
+            mScreenYToProgress = mProgressToOffsetY = null;
+            return;
+        }
+        mScreenYToProgress = new float[height + 1];
+        mProgressToOffsetY = new float[height + 1];
+        for (int i = 0; i <= height; i++) {
+            float fraction = (float) i / height;
+            mScreenYToProgress[i] = mCurve.xToProgress(fraction);
+            mProgressToOffsetY[i] = mCurve.progressToX(fraction) * height;
+        }
+    }
+
+    /**
+     * Converts from the progress along the curve to a screen coordinate.
+     */
+    public int curveProgressToScreenY(float p) {
+        if (p < 0 || p > 1) return stackVisibleRect.top + (int) (p * stackVisibleRect.height());
+        if (mProgressToOffsetY == null) {
+            float x = mCurve.progressToX(p);
+            return stackVisibleRect.top + (int) (x * stackVisibleRect.height());
+        }
+
+        // Interpolate between the two nearest steps, p = 1 lands on the last one
+        float pIndex = p * mTablesHeight;
+        int i = Math.min((int) pIndex, mTablesHeight - 1);
+        float y0 = mProgressToOffsetY[i];
+        float y = y0 + (mProgressToOffsetY[i + 1] - y0) * (pIndex - i);
+        return stackVisibleRect.top + (int) y;
+    }
+
+    /**
+     * Converts from the progress along the curve to a scale.
+     */
+    public float curveProgressToScale(float p) {
+        return mCurve.progressToScale(p);
+    }
+
+    /**
+     * Converts from a screen coordinate to the progress along the curve.
+     */
+    public float screenYToCurveProgress(int screenY) {
+        int y = screenY - stackVisibleRect.top;
+        if (mScreenYToProgress != null && y >= 0 && y <= mTablesHeight) {
+            return mScreenYToProgress[y];
+        }
+
+        float x = (float) y / stackVisibleRect.height();
+
+        if (x < 0 || x > 1) {
+            //noinspection SuspiciousNameCombination
+            return x;
+        }
+
+        return mCurve.xToProgress(x);
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2016 Zheng Li <https://lizheng.me>
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package me.lizheng.deckview.core;
+
+/* The transform state of a card, as computed by the stack layout */
+public class DeckTransform {
+    public int translationY = 0;
+    public float translationZ = 0;
+    public float scale = 1f;
+    public boolean visible = false;
+    public DeckRect rect = new DeckRect();
+    public float p = 0f;
+
+    /**
+     * Resets the current transform
+     */
+    public void reset() {
+        translationY = 0;
+        translationZ = 0;
+        scale = 1f;
+        visible = false;
+        rect.setEmpty();
+        p = 0f;
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2016 Zheng Li <https://lizheng.me>
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package me.lizheng.deckview.core;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/* The curve that the tasks follow as they go back in the stack.
+ *
+ * The curve is a log function, mapped to its arc length so that the progress p along the curve
+ * moves at a constant speed.  The larger the x scale, the longer the flat area of the curve, and
+ * the larger the log base, the steeper the curve gets at the back of the stack.  The lookup tables
+ * are computed once per set of parameters, and shared by every layout that uses the same curve, as
+ * long as the curve is one of the most recently used ones.
+ */
+public class StackCurve {
+
+    // The default curve
+    public static final float DefaultXScale = 1.75f;
+    public static final float DefaultLogBase = 3000;
+    public static final int DefaultPrecisionSteps = 250;
+    public static final float DefaultPeekMinScale = 0.8f;
+
+    // The most recently used curves, keyed by their parameters.  Apps only use a handful of
+    // curves, so the cache is bounded by count, and the least recently used curve is dropped once
+    // it is full.  Layouts that still hold a dropped curve keep using it.  Guarded by itself.
+    static final int MaxCachedCurves = 8;
+    static final LinkedHashMap<StackCurve, StackCurve> sCurves =
+            new LinkedHashMap<StackCurve, StackCurve>(MaxCachedCurves, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<StackCurve, StackCurve> eldest) {
+                    return size() > MaxCachedCurves;
+                }
+            };
+
+    public final float xScale;
+    public final float logBase;
+    public final int precisionSteps;
+    public final float peekMinScale; // The min scale of the last card in the peek area
+
+    float[] xp;
+    float[] px;
+
+    StackCurve(float xScale, float logBase, int precisionSteps, float peekMinScale) {
+        this.xScale = xScale;
+        this.logBase = logBase;
+        this.precisionSteps = precisionSteps;
+        this.peekMinScale = peekMinScale;
+    }
+
+    /**
+     * Returns the default curve.
+     */
+    public static StackCurve getDefault() {
+        return get(DefaultXScale, DefaultLogBase, DefaultPrecisionSteps, DefaultPeekMinScale);
+    }
+
+    /**
+     * Returns the curve for the given parameters, computing its lookup tables unless the curve is
+     * one of the {@link #MaxCachedCurves} most recently used ones.
+     */
+    public static StackCurve get(float xScale, float logBase, int precisionSteps,
+                                 float peekMinScale) {
+        if (precisionSteps < 2) {
+            throw new IllegalArgumentException("precisionSteps must be at least 2");
+        }
+        StackCurve key = new StackCurve(xScale, logBase, precisionSteps, peekMinScale);
+        synchronized (sCurves) {
+            StackCurve curve = sCurves.get(key);
+            if (curve == null) {
+                curve = key;
+                curve.initializeCurve();
+                sCurves.put(curve, curve);
+            }
+            return curve;
+        }
+    }
+
+    /**
+     * Initializes the curve.
+     */
+    void initializeCurve() {
+        xp = new float[precisionSteps + 1];
+        px = new float[precisionSteps + 1];
+
+        // Approximate f(x)
+        float[] fx = new float[precisionSteps + 1];
+        float step = 1f / precisionSteps;
+        float x = 0;
+        for (int xStep = 0; xStep <= precisionSteps; xStep++) {
+            fx[xStep] = logFunc(x);
+            x += step;
+        }
+
+        // Calculate the arc length for x:1->0
+        float pLength = 0;
+        float[] dx = new float[precisionSteps + 1];
+        dx[0] = 0;
+        for (int xStep = 1; xStep < precisionSteps; xStep++) {
+            dx[xStep] = (float) Math.sqrt(Math.pow(fx[xStep] - fx[xStep - 1], 2) + Math.pow(step, 2));
+            pLength += dx[xStep];
+        }
+
+        // Approximate p(x), a function of cumulative progress with x, normalized to 0..1
+        float p = 0;
+        px[0] = 0f;
+        px[precisionSteps] = 1f;
+        for (int xStep = 1; xStep <= precisionSteps; xStep++) {
+            p += Math.abs(dx[xStep] / pLength);
+            px[xStep] = p;
+        }
+
+        // Given p(x), calculate the inverse function x(p). This assumes that x(p) is also a valid
+        // function.
+        int xStep = 0;
+        p = 0;
+        xp[0] = 0f;
+        xp[precisionSteps] = 1f;
+
+        for (int pStep = 0; pStep < precisionSteps; pStep++) {
+            // Walk forward in px and find the x where px <= p && p < px+1
+            while (xStep < precisionSteps) {
+                if (px[xStep] > p) break;
+                xStep++;
+            }
+
+            // Now, px[xStep-1] <= p < px[xStep]
+            if (xStep == 0) {
+                xp[pStep] = 0;
+            } else {
+                // Find x such that proportionally, x is correct
+                float fraction = (p - px[xStep - 1]) / (px[xStep] - px[xStep - 1]);
+                x = (xStep - 1 + fraction) * step;
+                xp[pStep] = x;
+            }
+
+            p += step;
+        }
+    }
+
+    /**
+     * Reverses and scales out x.
+     */
+    float reverse(float x) {
+        return (-x * xScale) + 1;
+    }
+
+    /**
+     * The log function describing the curve.
+     */
+    float logFunc(float x) {
+        return 1f - (float) (Math.pow(logBase, reverse(x))) / (logBase);
+    }
+
+    /**
+     * Converts from the progress along the curve, in 0..1, to the fraction of the stack height.
+     */
+    public float progressToX(float p) {
+        float pIndex = p * precisionSteps;
+        int pFloorIndex = (int) Math.floor(pIndex);
+        int pCeilIndex = (int) Math.ceil(pIndex);
+        float xFraction = 0;
+        if (pFloorIndex < precisionSteps && (pCeilIndex != pFloorIndex)) {
+            float pFraction = (pIndex - pFloorIndex) / (pCeilIndex - pFloorIndex);
+            xFraction = (xp[pCeilIndex] - xp[pFloorIndex]) * pFraction;
+        }
+        return xp[pFloorIndex] + xFraction;
+    }
+
+    /**
+     * Converts from the fraction of the stack height, in 0..1, to the progress along the curve.
+     */
+    public float xToProgress(float x) {
+        float xIndex = x * precisionSteps;
+        int xFloorIndex = (int) Math.floor(xIndex);
+        int xCeilIndex = (int) Math.ceil(xIndex);
+        float pFraction = 0;
+
+        if (xFloorIndex < precisionSteps && (xCeilIndex != xFloorIndex)) {
+            float xFraction = (xIndex - xFloorIndex) / (xCeilIndex - xFloorIndex);
+            pFraction = (px[xCeilIndex] - px[xFloorIndex]) * xFraction;
+        }
+
+        return px[xFloorIndex] + pFraction;
+    }
+
+    /**
+     * Converts from the progress along the curve to a scale.
+     */
+    public float progressToScale(float p) {
+        if (p < 0) return peekMinScale;
+        if (p > 1) return 1f;
+        float scaleRange = (1f - peekMinScale);
+
+        return peekMinScale + (p * scaleRange);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof StackCurve)) return false;
+        StackCurve c = (StackCurve) o;
+        return Float.compare(xScale, c.xScale) == 0 && Float.compare(logBase, c.logBase) == 0
+                && precisionSteps == c.precisionSteps
+                && Float.compare(peekMinScale, c.peekMinScale) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Float.floatToIntBits(xScale);
+        result = 31 * result + Float.floatToIntBits(logBase);
+        result = 31 * result + precisionSteps;
+        result = 31 * result + Float.floatToIntBits(peekMinScale);
+        return result;
+    }
+}
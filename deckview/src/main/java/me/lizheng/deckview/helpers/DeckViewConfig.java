@@ -17,136 +17,167 @@
 
 package me.lizheng.deckview.helpers;
 
+import android.annotation.TargetApi;
+import android.app.ActivityManager;
 import android.content.Context;
-import android.content.SharedPreferences;
+import android.content.ContextWrapper;
 import android.content.res.Configuration;
 import android.content.res.Resources;
 import android.graphics.Rect;
+import android.os.Build;
 import android.support.v4.content.ContextCompat;
 import android.util.DisplayMetrics;
 import android.util.TypedValue;
 import android.view.animation.AnimationUtils;
 import android.view.animation.Interpolator;
 
+import java.util.HashMap;
+
 import me.lizheng.deckview.R;
+import me.lizheng.deckview.core.StackCurve;
 
 /**
- * Configuration helper
+ * Configuration helper.  A config is immutable, it is built once from the resources through a
+ * Builder, and each DeckView has its own.  The task views find the config of their DeckView through
+ * their context.
  */
 public class DeckViewConfig {
-    static DeckViewConfig sInstance;
-    static int sPrevConfigurationHashCode;
+    /**
+     * Levels for svelte optimizations
+     */
+    public static final int SVELTE_AUTO = -1;
+    public static final int SVELTE_NONE = 0;
+    public static final int SVELTE_LIMIT_CACHE = 1;
+    public static final int SVELTE_DISABLE_CACHE = 2;
+    public static final int SVELTE_DISABLE_LOADING = 3;
+
+    // The configs built from the resources alone, for each resources configuration
+    static final HashMap<Configuration, DeckViewConfig> sConfigs = new HashMap<>();
 
     /**
      * Animations
      */
-    public float animationPxMovementPerSecond;
+    public final float animationPxMovementPerSecond;
 
     /**
      * Interpolators
      */
-    public Interpolator fastOutSlowInInterpolator;
-    public Interpolator fastOutLinearInInterpolator;
-    public Interpolator linearOutSlowInInterpolator;
-    public Interpolator quintOutInterpolator;
+    public final Interpolator fastOutSlowInInterpolator;
+    public final Interpolator fastOutLinearInInterpolator;
+    public final Interpolator linearOutSlowInInterpolator;
+    public final Interpolator quintOutInterpolator;
 
     /**
      * Filtering
      */
-    public int filteringCurrentViewsAnimDuration;
-    public int filteringNewViewsAnimDuration;
+    public final int filteringCurrentViewsAnimDuration;
+    public final int filteringNewViewsAnimDuration;
 
     /**
      * Insets
      */
-    public Rect systemInsets = new Rect();
-    public Rect displayRect = new Rect();
+    public final Rect displayRect = new Rect();
 
     /**
      * Layout
      */
-    boolean isLandscape;
+    final boolean isLandscape;
 
     /**
      * Task stack
      */
-    public int taskStackScrollDuration;
-    public int taskStackMaxDim;
-    public int taskStackTopPaddingPx;
-    public float taskStackWidthPaddingPct;
-    public float taskStackOverscrollPct;
+    public final int taskStackScrollDuration;
+    public final int taskStackMaxDim;
+    public final int taskStackTopPaddingPx;
+    public final float taskStackWidthPaddingPct;
+    public final float taskStackOverscrollPct;
+    public final StackCurve stackCurve;
 
     /**
      * Transitions
      */
-    public int transitionEnterFromAppDelay;
-    public int transitionEnterFromHomeDelay;
+    public final int transitionEnterFromAppDelay;
+    public final int transitionEnterFromHomeDelay;
 
     /**
      * Task view animation and styles
      */
-    public int taskViewEnterFromAppDuration;
-    public int taskViewEnterFromHomeDuration;
-    public int taskViewEnterFromHomeStaggerDelay;
-    public int taskViewExitToAppDuration;
-    public int taskViewExitToHomeDuration;
-    public int taskViewRemoveAnimDuration;
-    public int taskViewRemoveAnimTranslationXPx;
-    public int taskViewTranslationZMinPx;
-    public int taskViewTranslationZMaxPx;
-    public int taskViewRoundedCornerRadiusPx;
-    public int taskViewHighlightPx;
-    public int taskViewAffiliateGroupEnterOffsetPx;
-    public float taskViewThumbnailAlpha;
+    public final int taskViewEnterFromAppDuration;
+    public final int taskViewEnterFromHomeDuration;
+    public final int taskViewEnterFromHomeStaggerDelay;
+    public final int taskViewExitToAppDuration;
+    public final int taskViewExitToHomeDuration;
+    public final int taskViewRemoveAnimDuration;
+    public final int taskViewRemoveAnimTranslationXPx;
+    public final int taskViewTranslationZMinPx;
+    public final int taskViewTranslationZMaxPx;
+    public final int taskViewRoundedCornerRadiusPx;
+    public final int taskViewHighlightPx;
+    public final int taskViewAffiliateGroupEnterOffsetPx;
+    public final float taskViewThumbnailAlpha;
+    public final boolean taskViewImpostorsEnabled;
+    public final float taskViewImpostorMaxProgress;
+    public final int taskViewTitlePrefetchCount;
+    public final float taskViewLodReducedMaxProgress;
+    public final float taskViewLodMinimalMaxProgress;
 
     /**
      * Task bar colors
      */
-    public int taskBarViewDefaultBackgroundColor;
-    public int taskBarViewLightTextColor;
-    public int taskBarViewDarkTextColor;
-    public int taskBarViewHighlightColor;
-    public float taskBarViewAffiliationColorMinAlpha;
+    public final int taskBarViewDefaultBackgroundColor;
+    public final int taskBarViewLightTextColor;
+    public final int taskBarViewDarkTextColor;
+    public final int taskBarViewHighlightColor;
+    public final float taskBarViewAffiliationColorMinAlpha;
 
     /**
      * Task bar size & animations
      */
-    public int taskBarHeight;
-    public int taskBarDismissDozeDelaySeconds;
+    public final int taskBarHeight;
+    public final int taskBarDismissDozeDelaySeconds;
 
     /**
-     * Nav bar scrim
+     * Fast scroller
      */
-    public int navBarScrimEnterDuration;
+    public final int fastScrollerWidthPx;
+    public final int fastScrollerThumbHeightPx;
+    public final int fastScrollerTouchWidthPx;
+    public final int fastScrollerTrackColor;
+    public final int fastScrollerThumbColor;
 
     /**
-     * Launch states
+     * Nav bar scrim
      */
-    public boolean launchedWithAltTab;
-    public boolean launchedFromAppWithThumbnail;
-    public boolean launchedFromHome;
-    public boolean launchedReuseTaskStackViews;
-    public boolean launchedHasConfigurationChanged;
+    public final int navBarScrimEnterDuration;
 
     /**
      * Misc *
      */
-    public boolean useHardwareLayers;
-    public int altTabKeyDelay;
-    public boolean fakeShadows;
+    public final boolean useHardwareLayers;
+    public final int altTabKeyDelay;
+    public final boolean fakeShadows;
+    public final boolean flatTaskViews;
 
     /**
      * Dev options and global settings
      */
-    public boolean debugModeEnabled;
-    public int svelteLevel;
+    public final boolean debugModeEnabled;
+    public final int svelteLevel;
+
+    /**
+     * Svelte budgets
+     */
+    public final int svelteThumbnailFrontCount;
+    public final int svelteMaxViewPoolSize;
+    public final int svelteMaxCachedTitleLayouts;
 
     /**
-     * Private constructor
+     * Private constructor, loads the config from the resources and applies the overrides of the
+     * builder
      */
-    private DeckViewConfig(Context context) {
-        // Properties that don't have to be reloaded with each configuration change can be loaded
-        // here.
+    private DeckViewConfig(Context context, Builder builder) {
+        Resources res = context.getResources();
+        DisplayMetrics dm = res.getDisplayMetrics();
 
         // Interpolators
         fastOutSlowInInterpolator = AnimationUtils.loadInterpolator(context,
@@ -157,41 +188,14 @@ public class DeckViewConfig {
                 android.R.anim.decelerate_interpolator);
         quintOutInterpolator = AnimationUtils.loadInterpolator(context,
                 android.R.anim.accelerate_interpolator);
-    }
-
-    /**
-     * Updates the configuration to the current context
-     */
-    public static DeckViewConfig reinitialize(Context context) {
-        if (sInstance == null) {
-            sInstance = new DeckViewConfig(context);
-        }
-        int configHashCode = context.getResources().getConfiguration().hashCode();
-        if (sPrevConfigurationHashCode != configHashCode) {
-            sInstance.update(context);
-            sPrevConfigurationHashCode = configHashCode;
-        }
-
-        sInstance.updateOnReinitialize(context);
-        return sInstance;
-    }
-
-    /**
-     * Returns the current recents configuration
-     */
-    public static DeckViewConfig getInstance() {
-        return sInstance;
-    }
-
-    /**
-     * Updates the state, given the specified context
-     */
-    void update(Context context) {
-        Resources res = context.getResources();
-        DisplayMetrics dm = res.getDisplayMetrics();
 
         // Debug mode
-        debugModeEnabled = false;
+        debugModeEnabled = (builder.mDebugModeEnabled != null) && builder.mDebugModeEnabled;
+
+        // Svelte level, the budgets and effects below depend on it
+        int level = (builder.mSvelteLevel != null) ? builder.mSvelteLevel
+                : res.getInteger(R.integer.deck_svelte_level);
+        svelteLevel = (level == SVELTE_AUTO) ? getSvelteLevelForDevice(context) : level;
 
         // Layout
         isLandscape = res.getConfiguration().orientation == Configuration.ORIENTATION_LANDSCAPE;
@@ -220,6 +224,19 @@ public class DeckViewConfig {
         taskStackOverscrollPct = stackOverscrollPctValue.getFloat();
         taskStackMaxDim = res.getInteger(R.integer.max_deck_view_dim);
         taskStackTopPaddingPx = res.getDimensionPixelSize(R.dimen.deck_top_padding);
+        if (builder.mStackCurve != null) {
+            stackCurve = builder.mStackCurve;
+        } else {
+            TypedValue curveXScaleValue = new TypedValue();
+            res.getValue(R.dimen.deck_curve_x_scale, curveXScaleValue, true);
+            TypedValue curveLogBaseValue = new TypedValue();
+            res.getValue(R.dimen.deck_curve_log_base, curveLogBaseValue, true);
+            TypedValue peekMinScaleValue = new TypedValue();
+            res.getValue(R.dimen.deck_peek_min_scale, peekMinScaleValue, true);
+            stackCurve = StackCurve.get(curveXScaleValue.getFloat(), curveLogBaseValue.getFloat(),
+                    res.getInteger(R.integer.deck_curve_precision_steps),
+                    peekMinScaleValue.getFloat());
+        }
 
         // Transition
         transitionEnterFromAppDelay =
@@ -252,6 +269,20 @@ public class DeckViewConfig {
         TypedValue thumbnailAlphaValue = new TypedValue();
         res.getValue(R.dimen.task_view_thumbnail_alpha, thumbnailAlphaValue, true);
         taskViewThumbnailAlpha = thumbnailAlphaValue.getFloat();
+        // Don't snapshot the back tasks from the first svelte level
+        taskViewImpostorsEnabled = getBoolean(res, R.bool.config_task_view_impostors,
+                builder.mTaskViewImpostorsEnabled) && svelteLevel < SVELTE_LIMIT_CACHE;
+        TypedValue impostorMaxProgressValue = new TypedValue();
+        res.getValue(R.dimen.task_view_impostor_max_progress, impostorMaxProgressValue, true);
+        taskViewImpostorMaxProgress = impostorMaxProgressValue.getFloat();
+        taskViewTitlePrefetchCount = (svelteLevel < SVELTE_DISABLE_CACHE)
+                ? res.getInteger(R.integer.task_view_title_prefetch_count) : 0;
+        TypedValue lodReducedMaxProgressValue = new TypedValue();
+        res.getValue(R.dimen.task_view_lod_reduced_max_progress, lodReducedMaxProgressValue, true);
+        taskViewLodReducedMaxProgress = lodReducedMaxProgressValue.getFloat();
+        TypedValue lodMinimalMaxProgressValue = new TypedValue();
+        res.getValue(R.dimen.task_view_lod_minimal_max_progress, lodMinimalMaxProgressValue, true);
+        taskViewLodMinimalMaxProgress = lodMinimalMaxProgressValue.getFloat();
 
         // Task bar colors
         taskBarViewDefaultBackgroundColor =
@@ -275,39 +306,87 @@ public class DeckViewConfig {
         taskBarDismissDozeDelaySeconds =
                 res.getInteger(R.integer.task_bar_dismiss_delay_seconds);
 
+        // Fast scroller
+        fastScrollerWidthPx = res.getDimensionPixelSize(R.dimen.fast_scroller_width);
+        fastScrollerThumbHeightPx = res.getDimensionPixelSize(R.dimen.fast_scroller_thumb_height);
+        fastScrollerTouchWidthPx = res.getDimensionPixelSize(R.dimen.fast_scroller_touch_width);
+        fastScrollerTrackColor = ContextCompat.getColor(context, R.color.fast_scroller_track_color);
+        fastScrollerThumbColor = ContextCompat.getColor(context, R.color.fast_scroller_thumb_color);
+
         // Nav bar scrim
         navBarScrimEnterDuration =
                 res.getInteger(R.integer.nav_bar_scrim_enter_duration);
 
         // Misc
-        useHardwareLayers = res.getBoolean(R.bool.config_use_hardware_layers);
+        useHardwareLayers = getBoolean(res, R.bool.config_use_hardware_layers,
+                builder.mUseHardwareLayers);
         altTabKeyDelay = res.getInteger(R.integer.deck_alt_tab_key_delay);
-        fakeShadows = res.getBoolean(R.bool.config_fake_shadows);
-        svelteLevel = res.getInteger(R.integer.deck_svelte_level);
+        fakeShadows = getBoolean(res, R.bool.config_fake_shadows, builder.mFakeShadows)
+                && svelteLevel < SVELTE_DISABLE_CACHE;
+        flatTaskViews = getBoolean(res, R.bool.config_flat_task_views, builder.mFlatTaskViews);
+
+        // Svelte budgets, each level keeps the restrictions of the levels below it
+        svelteThumbnailFrontCount = getSvelteBudget(svelteLevel, Integer.MAX_VALUE, 4, 2, 1);
+        svelteMaxViewPoolSize = getSvelteBudget(svelteLevel, Integer.MAX_VALUE, 4, 2, 0);
+        svelteMaxCachedTitleLayouts = getSvelteBudget(svelteLevel, 64, 32, 16, 8);
     }
 
     /**
-     * Updates the system insets
+     * Returns the config of the DeckView that the context belongs to, or the config built from the
+     * resources alone if the context does not belong to one.
      */
-    public void updateSystemInsets(Rect insets) {
-        systemInsets.set(insets);
+    public static DeckViewConfig from(Context context) {
+        Context c = context;
+        while (c instanceof ContextWrapper) {
+            if (c instanceof ConfigContextWrapper) {
+                return ((ConfigContextWrapper) c).mConfig;
+            }
+            c = ((ContextWrapper) c).getBaseContext();
+        }
+        return new Builder(context).build();
     }
 
     /**
-     * Updates the states that need to be re-read whenever we re-initialize.
+     * Returns the override if there is one, otherwise the boolean resource.
      */
-    void updateOnReinitialize(Context context/*, SystemServicesProxy ssp*/) {
+    static boolean getBoolean(Resources res, int id, Boolean override) {
+        return (override != null) ? override : res.getBoolean(id);
     }
 
     /**
-     * Called when the configuration has changed, and we want to reset any configuration specific
-     * members.
+     * Returns the budget for the given svelte level.
      */
-    public void updateOnConfigurationChange() {
-        // Reset this flag on configuration change to ensure that we recreate new task views
-        launchedReuseTaskStackViews = false;
-        // Set this flag to indicate that the configuration has changed since Recents last launched
-        launchedHasConfigurationChanged = true;
+    static int getSvelteBudget(int svelteLevel, int none, int limitCache, int disableCache,
+                               int disableLoading) {
+        switch (svelteLevel) {
+            case SVELTE_NONE:
+                return none;
+            case SVELTE_LIMIT_CACHE:
+                return limitCache;
+            case SVELTE_DISABLE_CACHE:
+                return disableCache;
+            default:
+                return disableLoading;
+        }
+    }
+
+    /**
+     * Picks the svelte level from whether this is a low ram device, and from its memory class.
+     */
+    static int getSvelteLevelForDevice(Context context) {
+        ActivityManager am = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        int memoryClass = am.getMemoryClass();
+        if (isLowRamDevice(am)) {
+            return (memoryClass <= 32) ? SVELTE_DISABLE_LOADING : SVELTE_DISABLE_CACHE;
+        } else if (memoryClass <= 64) {
+            return SVELTE_LIMIT_CACHE;
+        }
+        return SVELTE_NONE;
+    }
+
+    @TargetApi(Build.VERSION_CODES.KITKAT)
+    static boolean isLowRamDevice(ActivityManager am) {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT && am.isLowRamDevice();
     }
 
     /**
@@ -318,4 +397,103 @@ public class DeckViewConfig {
                                    Rect taskStackBounds) {
         taskStackBounds.set(0, 0, windowWidth, windowHeight);
     }
+
+    /**
+     * A context that carries the config of a DeckView, the DeckView inflates its task views with it.
+     */
+    public static class ConfigContextWrapper extends ContextWrapper {
+        final DeckViewConfig mConfig;
+
+        public ConfigContextWrapper(Context base, DeckViewConfig config) {
+            super(base);
+            mConfig = config;
+        }
+    }
+
+    /**
+     * Builds a config.  Configs without overrides are cached for each resources configuration, so
+     * that the resources are only read again when the configuration changes.
+     */
+    public static class Builder {
+        final Context mContext;
+        Integer mSvelteLevel;
+        Boolean mDebugModeEnabled;
+        Boolean mFakeShadows;
+        Boolean mFlatTaskViews;
+        Boolean mUseHardwareLayers;
+        Boolean mTaskViewImpostorsEnabled;
+        StackCurve mStackCurve;
+
+        public Builder(Context context) {
+            mContext = context;
+        }
+
+        /**
+         * Overrides the svelte level, which may be SVELTE_AUTO.
+         */
+        public Builder setSvelteLevel(int svelteLevel) {
+            mSvelteLevel = svelteLevel;
+            return this;
+        }
+
+        public Builder setDebugModeEnabled(boolean enabled) {
+            mDebugModeEnabled = enabled;
+            return this;
+        }
+
+        public Builder setFakeShadows(boolean fakeShadows) {
+            mFakeShadows = fakeShadows;
+            return this;
+        }
+
+        public Builder setFlatTaskViews(boolean flatTaskViews) {
+            mFlatTaskViews = flatTaskViews;
+            return this;
+        }
+
+        public Builder setUseHardwareLayers(boolean useHardwareLayers) {
+            mUseHardwareLayers = useHardwareLayers;
+            return this;
+        }
+
+        public Builder setTaskViewImpostorsEnabled(boolean enabled) {
+            mTaskViewImpostorsEnabled = enabled;
+            return this;
+        }
+
+        /**
+         * Overrides the curve of the stack, e.g. a flatter curve for dense decks, or a steeper one
+         * for decks of a few cards.  See {@link StackCurve#get}.
+         */
+        public Builder setStackCurve(StackCurve curve) {
+            mStackCurve = curve;
+            return this;
+        }
+
+        boolean hasOverrides() {
+            return mSvelteLevel != null || mDebugModeEnabled != null || mFakeShadows != null
+                    || mFlatTaskViews != null || mUseHardwareLayers != null
+                    || mTaskViewImpostorsEnabled != null || mStackCurve != null;
+        }
+
+        /**
+         * Returns the config, reusing the cached one for the current configuration if there are
+         * no overrides.
+         */
+        public DeckViewConfig build() {
+            if (hasOverrides()) {
+                return new DeckViewConfig(mContext, this);
+            }
+
+            Configuration configuration = mContext.getResources().getConfiguration();
+            synchronized (sConfigs) {
+                DeckViewConfig config = sConfigs.get(configuration);
+                if (config == null) {
+                    config = new DeckViewConfig(mContext, this);
+                    sConfigs.put(new Configuration(configuration), config);
+                }
+                return config;
+            }
+        }
+    }
 }
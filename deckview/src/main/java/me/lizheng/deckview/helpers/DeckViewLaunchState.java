@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2016 Zheng Li <https://lizheng.me>
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package me.lizheng.deckview.helpers;
+
+/**
+ * The launch state of a DeckView, which unlike the config may change over the life of the view.
+ * Each DeckView has its own, and shares it with its task views.
+ */
+public class DeckViewLaunchState {
+    public boolean launchedWithAltTab;
+    public boolean launchedFromAppWithThumbnail;
+    public boolean launchedFromHome;
+    public boolean launchedReuseTaskStackViews;
+    public boolean launchedHasConfigurationChanged;
+
+    /**
+     * Called when the configuration has changed, and we want to reset any configuration specific
+     * members.
+     */
+    public void onConfigurationChange() {
+        // Reset this flag on configuration change to ensure that we recreate new task views
+        launchedReuseTaskStackViews = false;
+        // Set this flag to indicate that the configuration has changed since Recents last launched
+        launchedHasConfigurationChanged = true;
+    }
+}
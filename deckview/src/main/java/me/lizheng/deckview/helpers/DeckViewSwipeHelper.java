@@ -256,7 +256,8 @@ public class DeckViewSwipeHelper {
         ValueAnimator anim = createTranslationAnimation(view, 0);
         int duration = SNAP_ANIM_LEN;
         anim.setDuration(duration);
-        anim.setInterpolator(DeckViewConfig.getInstance().linearOutSlowInInterpolator);
+        anim.setInterpolator(
+                DeckViewConfig.from(view.getContext()).linearOutSlowInInterpolator);
         anim.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
             @Override
             public void onAnimationUpdate(ValueAnimator animation) {
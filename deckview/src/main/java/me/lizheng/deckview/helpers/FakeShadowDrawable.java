@@ -18,6 +18,7 @@
 package me.lizheng.deckview.helpers;
 
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.ColorFilter;
 import android.graphics.LinearGradient;
@@ -32,6 +33,7 @@ import android.graphics.drawable.Drawable;
 import android.support.annotation.NonNull;
 import android.support.v4.content.ContextCompat;
 import android.util.Log;
+import android.util.LruCache;
 
 import me.lizheng.deckview.R;
 
@@ -40,6 +42,9 @@ import me.lizheng.deckview.R;
  * frameworks/support/v7/cardview/eclair-mr1/android/support/v7/widget/
  * RoundRectDrawableWithShadow.java revision c42ba8c000d1e6ce85e152dfc17089a0a69e739f with a few
  * modifications to suit our needs in SystemUI.
+ *
+ * The shadow is rendered once into a small nine-patch like atlas that is shared by all the
+ * drawables with the same corner radius and shadow size, and drawn as a few bitmap blits.
  */
 public class FakeShadowDrawable extends Drawable {
     // used to calculate content padding
@@ -73,6 +78,8 @@ public class FakeShadowDrawable extends Drawable {
 
     private boolean mDirty = true;
 
+    private boolean mShadowEnabled = true;
+
     private final int mShadowStartColor;
 
     private final int mShadowEndColor;
@@ -82,6 +89,33 @@ public class FakeShadowDrawable extends Drawable {
      */
     private boolean mPrintedShadowClipWarning = false;
 
+    // The shared shadow atlases, keyed by the shadow geometry (see getShadowAtlasKey()) and
+    // bounded by their size in bytes.  The colors are the same for all the drawables, so the
+    // atlases are dropped if they ever change.  Evicted atlases are not recycled, the drawables
+    // that still draw them keep them alive.  Only accessed from the UI thread, which draws the
+    // drawables.
+    static final int MaxShadowAtlasBytes = 512 * 1024;
+    static LruCache<Long, Bitmap> sShadowAtlases = new LruCache<Long, Bitmap>(MaxShadowAtlasBytes) {
+        @Override
+        protected int sizeOf(Long key, Bitmap atlas) {
+            return atlas.getByteCount();
+        }
+    };
+    static int sShadowAtlasStartColor;
+    static int sShadowAtlasEndColor;
+
+    // The atlas holds the corners, and a single stretchable row and column between them
+    Bitmap mShadowAtlas;
+    int mAtlasCornerWidth;
+    int mAtlasCornerHeight;
+    Paint mAtlasPaint = new Paint();
+    Rect mAtlasSrcRect = new Rect();
+    Rect mAtlasDstRect = new Rect();
+    int[] mAtlasSrcX = new int[4];
+    int[] mAtlasSrcY = new int[4];
+    int[] mAtlasDstX = new int[4];
+    int[] mAtlasDstY = new int[4];
+
     public FakeShadowDrawable(Context context, DeckViewConfig config) {
         mShadowStartColor = ContextCompat.getColor(context, R.color.fake_shadow_start_color);
         mShadowEndColor = ContextCompat.getColor(context, R.color.fake_shadow_end_color);
@@ -100,6 +134,7 @@ public class FakeShadowDrawable extends Drawable {
     public void setAlpha(int alpha) {
         mCornerShadowPaint.setAlpha(alpha);
         mEdgeShadowPaint.setAlpha(alpha);
+        mAtlasPaint.setAlpha(alpha);
     }
 
     @Override
@@ -127,6 +162,7 @@ public class FakeShadowDrawable extends Drawable {
         mRawMaxShadowSize = maxShadowSize;
         mShadowSize = shadowSize * SHADOW_MULTIPLIER + mInsetShadow;
         mMaxShadowSize = maxShadowSize + mInsetShadow;
+        mShadowAtlas = null;
         mDirty = true;
         invalidateSelf();
     }
@@ -161,6 +197,7 @@ public class FakeShadowDrawable extends Drawable {
     public void setColorFilter(ColorFilter cf) {
         mCornerShadowPaint.setColorFilter(cf);
         mEdgeShadowPaint.setColorFilter(cf);
+        mAtlasPaint.setColorFilter(cf);
     }
 
     @Override
@@ -168,8 +205,32 @@ public class FakeShadowDrawable extends Drawable {
         return PixelFormat.OPAQUE;
     }
 
+    /**
+     * Sets whether the shadow is drawn, the padding is kept either way.
+     */
+    public void setShadowEnabled(boolean enabled) {
+        if (enabled != mShadowEnabled) {
+            mShadowEnabled = enabled;
+            invalidateSelf();
+        }
+    }
+
     @Override
     public void draw(Canvas canvas) {
+        if (!mShadowEnabled) {
+            return;
+        }
+        if (mShadowAtlas == null) {
+            mShadowAtlas = getShadowAtlas();
+        }
+        Rect bounds = getBounds();
+        if (bounds.width() >= mShadowAtlas.getWidth()
+                && bounds.height() >= mShadowAtlas.getHeight()) {
+            drawShadowAtlas(canvas, bounds);
+            return;
+        }
+
+        // Fall back to drawing the shadow directly if the bounds are smaller than the atlas
         if (mDirty) {
             buildComponents(getBounds());
             mDirty = false;
@@ -179,6 +240,82 @@ public class FakeShadowDrawable extends Drawable {
         canvas.translate(0, -mRawShadowSize / 4);
     }
 
+    /**
+     * Returns the shared shadow atlas for this shadow, rendering it if necessary.
+     */
+    private Bitmap getShadowAtlas() {
+        final float verticalOffset = mMaxShadowSize * SHADOW_MULTIPLIER;
+        final float inset = mCornerRadius + mInsetShadow + mRawShadowSize / 2;
+        // The stretchable row has to be below the shadow offset, so that it is part of the edges
+        mAtlasCornerWidth = (int) Math.ceil(mMaxShadowSize + inset);
+        mAtlasCornerHeight = (int) Math.ceil(verticalOffset + inset + mRawShadowSize / 4);
+
+        if (mShadowStartColor != sShadowAtlasStartColor
+                || mShadowEndColor != sShadowAtlasEndColor) {
+            sShadowAtlases.evictAll();
+            sShadowAtlasStartColor = mShadowStartColor;
+            sShadowAtlasEndColor = mShadowEndColor;
+        }
+        long key = getShadowAtlasKey();
+        Bitmap atlas = sShadowAtlases.get(key);
+        if (atlas == null) {
+            int width = 2 * mAtlasCornerWidth + 1;
+            int height = 2 * mAtlasCornerHeight + 1;
+            atlas = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            Canvas canvas = new Canvas(atlas);
+            buildComponents(new Rect(0, 0, width, height));
+            canvas.translate(0, mRawShadowSize / 4);
+            drawShadow(canvas);
+            sShadowAtlases.put(key, atlas);
+
+            // Rebuild the components for the actual bounds if we ever fall back to them
+            mDirty = true;
+        }
+        return atlas;
+    }
+
+    /**
+     * Packs the geometry of the shadow into the key of its atlas, the corner radius and the shadow
+     * sizes in pixels, and the inset in sixteenths of a pixel.
+     */
+    long getShadowAtlasKey() {
+        return ((long) (Math.round(mCornerRadius) & 0xffff) << 48)
+                | ((long) (Math.round(mRawShadowSize) & 0xffff) << 32)
+                | ((long) (Math.round(mRawMaxShadowSize) & 0xffff) << 16)
+                | (Math.round(mInsetShadow * 16) & 0xffff);
+    }
+
+    /**
+     * Draws the shadow from the atlas, the corners as they are and the edges stretched between
+     * them.
+     */
+    private void drawShadowAtlas(Canvas canvas, Rect bounds) {
+        final int cw = mAtlasCornerWidth;
+        final int ch = mAtlasCornerHeight;
+        final int aw = mShadowAtlas.getWidth();
+        final int ah = mShadowAtlas.getHeight();
+        final int[] srcX = mAtlasSrcX;
+        final int[] srcY = mAtlasSrcY;
+        final int[] dstX = mAtlasDstX;
+        final int[] dstY = mAtlasDstY;
+        srcX[0] = 0; srcX[1] = cw; srcX[2] = cw + 1; srcX[3] = aw;
+        srcY[0] = 0; srcY[1] = ch; srcY[2] = ch + 1; srcY[3] = ah;
+        dstX[0] = bounds.left; dstX[1] = bounds.left + cw;
+        dstX[2] = bounds.right - cw; dstX[3] = bounds.right;
+        dstY[0] = bounds.top; dstY[1] = bounds.top + ch;
+        dstY[2] = bounds.bottom - ch; dstY[3] = bounds.bottom;
+        for (int y = 0; y < 3; y++) {
+            for (int x = 0; x < 3; x++) {
+                // The card covers the center
+                if (x == 1 && y == 1) continue;
+
+                mAtlasSrcRect.set(srcX[x], srcY[y], srcX[x + 1], srcY[y + 1]);
+                mAtlasDstRect.set(dstX[x], dstY[y], dstX[x + 1], dstY[y + 1]);
+                canvas.drawBitmap(mShadowAtlas, mAtlasSrcRect, mAtlasDstRect, mAtlasPaint);
+            }
+        }
+    }
+
     private void drawShadow(Canvas canvas) {
         final float edgeShadowTop = -mCornerRadius - mShadowSize;
         final float inset = mCornerRadius + mInsetShadow + mRawShadowSize / 2;
@@ -23,11 +23,13 @@ import android.animation.ObjectAnimator;
 import android.animation.ValueAnimator;
 import android.content.Context;
 import android.graphics.Bitmap;
+import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.PorterDuff;
 import android.graphics.PorterDuffColorFilter;
 import android.graphics.Rect;
+import android.graphics.RectF;
 import android.graphics.drawable.Drawable;
 import android.support.v4.view.ViewCompat;
 import android.util.AttributeSet;
@@ -41,13 +43,26 @@ import android.widget.FrameLayout;
 import me.lizheng.deckview.R;
 import me.lizheng.deckview.helpers.DeckChildViewTransform;
 import me.lizheng.deckview.helpers.DeckViewConfig;
+import me.lizheng.deckview.helpers.DeckViewLaunchState;
 import me.lizheng.deckview.helpers.FakeShadowDrawable;
+import me.lizheng.deckview.utilities.DVTrace;
 import me.lizheng.deckview.utilities.DVUtils;
 
 /* A task view */
 public class DeckChildView<T> extends FrameLayout implements
         View.OnClickListener, View.OnLongClickListener {
 
+    // The visible content height of a view that is not covered by another view in the stack
+    static final int UnclippedHeight = Integer.MAX_VALUE;
+
+    // The scale of the snapshot drawn for impostors, relative to the size of the view
+    static final float ImpostorScale = 0.5f;
+
+    // The levels of detail of the effects, by how far back in the stack the task is
+    static final int EffectsLodFull = 0;
+    static final int EffectsLodReduced = 1; // No highlight or anti-aliased corners
+    static final int EffectsLodMinimal = 2; // No shadow either
+
     /**
      * The TaskView callbacks
      */
@@ -61,6 +76,8 @@ public class DeckChildView<T> extends FrameLayout implements
     }
 
     DeckViewConfig mConfig;
+    // Shared with the DeckView that created this view
+    DeckViewLaunchState mLaunchState = new DeckViewLaunchState();
 
     float mTaskProgress;
     ObjectAnimator mTaskProgressAnimator;
@@ -71,9 +88,31 @@ public class DeckChildView<T> extends FrameLayout implements
     Paint mDimLayerPaint = new Paint();
 
     T mKey;
+    // The position of the key in the data, kept up to date by the DeckView
+    int mAdapterIndex = -1;
     boolean mIsFocused;
     boolean mFocusAnimationsEnabled;
     boolean mClipViewInStack;
+    int mClipBottom;
+    boolean mIsOccludedInStack;
+    boolean mHeaderOnly;
+
+    // Impostor, a snapshot of this view that is drawn instead of the view hierarchy while the task
+    // is far back in the stack.  The snapshot is taken without the thumbnail dim, which is drawn
+    // over it instead, so that it only has to be retaken when the view is rebound or refocused.
+    // It is taken before drawing (see updateImpostor()) into a bitmap from the pool of the stack,
+    // and kept while the task moves forward and back across the impostor progress.
+    boolean mIsImpostor;
+    boolean mImpostorDirty = true;
+    Bitmap mImpostorBitmap;
+    Canvas mImpostorCanvas = new Canvas();
+    DeckViewBitmapPool mImpostorPool;
+    Paint mImpostorPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    Paint mImpostorDimPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    // The current level of detail of the effects, updated with the task progress
+    int mEffectsLod = EffectsLodFull;
+    FakeShadowDrawable mFakeShadow;
 
     View mContent;
     DeckChildViewThumbnail mThumbnailView;
@@ -81,6 +120,7 @@ public class DeckChildView<T> extends FrameLayout implements
     DeckChildViewCallbacks<T> mCb;
 
     // Optimizations
+    RectF mTmpRectF = new RectF();
     ValueAnimator.AnimatorUpdateListener mUpdateDimListener =
             new ValueAnimator.AnimatorUpdateListener() {
                 @Override
@@ -100,14 +140,13 @@ public class DeckChildView<T> extends FrameLayout implements
 
     public DeckChildView(Context context, AttributeSet attrs, int defStyleAttr) {
         super(context, attrs, defStyleAttr);
-        mConfig = DeckViewConfig.getInstance();
+        mConfig = DeckViewConfig.from(context);
         mMaxDimScale = mConfig.taskStackMaxDim / 255f;
         mClipViewInStack = true;
-        setTaskProgress(getTaskProgress());
-        setDim(getDim());
 
         if (mConfig.fakeShadows) {
-            setBackgroundDrawable(new FakeShadowDrawable(context, mConfig));
+            mFakeShadow = new FakeShadowDrawable(context, mConfig);
+            setBackgroundDrawable(mFakeShadow);
         }
     }
 
@@ -136,6 +175,20 @@ public class DeckChildView<T> extends FrameLayout implements
         return mKey;
     }
 
+    /**
+     * Gets the position of the task in the data, or -1 if this view is not bound
+     */
+    int getAdapterIndex() {
+        return mAdapterIndex;
+    }
+
+    /**
+     * Sets the position of the task in the data, as the data changes around it
+     */
+    void setAdapterIndex(int index) {
+        mAdapterIndex = index;
+    }
+
     @Override
     protected void onFinishInflate() {
         super.onFinishInflate();
@@ -143,7 +196,17 @@ public class DeckChildView<T> extends FrameLayout implements
         mContent = findViewById(R.id.task_view_content);
         mHeaderView = (DeckChildViewHeader) findViewById(R.id.task_view_bar);
         mThumbnailView = (DeckChildViewThumbnail) findViewById(R.id.task_view_thumbnail);
-        mThumbnailView.updateClipToTaskBar(mHeaderView);
+        if (mThumbnailView != null && mHeaderView != null) {
+            mThumbnailView.updateClipToTaskBar(mHeaderView);
+        }
+
+        // Apply the initial progress and dim here rather than in the constructor, so that they
+        // reach the fields and child views of subclasses, which do not exist during super()
+        setTaskProgress(getTaskProgress());
+        setDim(getDim());
+        // The progress may map to the level of detail that the view already had, so apply it to
+        // the new child views regardless
+        applyEffectsLod(mEffectsLod);
     }
 
     @Override
@@ -189,6 +252,9 @@ public class DeckChildView<T> extends FrameLayout implements
             mTaskProgressAnimator = ObjectAnimator.ofFloat(this, "taskProgress", toTransform.p);
             mTaskProgressAnimator.setDuration(duration);
             mTaskProgressAnimator.addUpdateListener(mUpdateDimListener);
+            if (updateCallback != null) {
+                mTaskProgressAnimator.addUpdateListener(updateCallback);
+            }
             mTaskProgressAnimator.start();
         }
     }
@@ -198,6 +264,9 @@ public class DeckChildView<T> extends FrameLayout implements
      */
     void resetViewProperties() {
         setDim(0);
+        // Release the snapshot while the view is in the pool
+        setImpostor(false);
+        setVisibleContentHeight(UnclippedHeight);
         setLayerType(View.LAYER_TYPE_NONE, null);
         DeckChildViewTransform.reset(this);
     }
@@ -211,9 +280,9 @@ public class DeckChildView<T> extends FrameLayout implements
         int initialDim = getDim();
 
         //noinspection StatementWithEmptyBody
-        if (mConfig.launchedHasConfigurationChanged) {
+        if (mLaunchState.launchedHasConfigurationChanged) {
             // Just load the views as-is
-        } else if (mConfig.launchedFromAppWithThumbnail) {
+        } else if (mLaunchState.launchedFromAppWithThumbnail) {
             if (isTaskViewLaunchTargetTask) {
                 // Set the dim to 0 so we can animate it in
                 initialDim = 0;
@@ -222,7 +291,7 @@ public class DeckChildView<T> extends FrameLayout implements
                 setTranslationY(offscreenY);
             }
 
-        } else if (mConfig.launchedFromHome) {
+        } else if (mLaunchState.launchedFromHome) {
             // Move the task view off screen (below) so we can animate it in
             setTranslationY(offscreenY);
             ViewCompat.setTranslationY(this, 0);
@@ -232,7 +301,9 @@ public class DeckChildView<T> extends FrameLayout implements
         // Apply the current dim
         setDim(initialDim);
         // Prepare the thumbnail view alpha
-        mThumbnailView.prepareEnterRecentsAnimation(isTaskViewLaunchTargetTask);
+        if (mThumbnailView != null) {
+            mThumbnailView.prepareEnterRecentsAnimation(isTaskViewLaunchTargetTask);
+        }
     }
 
     /**
@@ -243,8 +314,8 @@ public class DeckChildView<T> extends FrameLayout implements
         final DeckChildViewTransform transform = ctx.currentTaskTransform;
         int startDelay = 0;
 
-        if (mConfig.launchedFromHome) {
-            Log.i(getClass().getSimpleName(), "mConfig.launchedFromHome false");
+        if (mLaunchState.launchedFromHome) {
+            Log.i(getClass().getSimpleName(), "mLaunchState.launchedFromHome false");
 
             // Animate the tasks up
             int frontIndex = (ctx.currentStackViewCount - ctx.currentStackViewIndex - 1);
@@ -312,6 +383,11 @@ public class DeckChildView<T> extends FrameLayout implements
      * Animates this task view if the user does not interact with the stack after a certain time.
      */
     void startNoUserInteractionAnimation() {
+        if (mIsImpostor) {
+            // Don't animate the snapshot, the final state shows when it is next retaken
+            setNoUserInteractionState();
+            return;
+        }
         mHeaderView.startNoUserInteractionAnimation();
     }
 
@@ -365,11 +441,299 @@ public class DeckChildView<T> extends FrameLayout implements
         }
     }
 
+    /**
+     * Sets how much of the content of this view is visible above the task in front of it, in the
+     * local space of this view.  Nothing is drawn below that, the thumbnail is not drawn if only
+     * the header bar is visible, and the view is not drawn at all if it is completely covered.
+     * The thumbnail of an impostor is kept in the snapshot, drawing it costs nothing extra.
+     */
+    void setVisibleContentHeight(int visibleHeight) {
+        if (visibleHeight == UnclippedHeight) {
+            setClipBottom(0);
+            setOccludedInStack(false);
+            setThumbnailInvisible(mHeaderOnly);
+        } else {
+            // Keep the rounded corners of the task in front uncovered so that nothing shows through
+            setClipBottom(Math.max(0, getHeight() - getPaddingTop() - visibleHeight
+                    - mConfig.taskViewRoundedCornerRadiusPx));
+            setOccludedInStack(visibleHeight <= 0);
+            setThumbnailInvisible(mHeaderOnly
+                    || (!mIsImpostor && visibleHeight < mConfig.taskBarHeight));
+        }
+    }
+
+    /**
+     * Sets whether only the header bar of this view is drawn, in which case the thumbnail is also
+     * released.  (see DeckViewConfig.svelteThumbnailFrontCount)
+     */
+    void setHeaderOnly(boolean headerOnly) {
+        if (headerOnly != mHeaderOnly) {
+            mHeaderOnly = headerOnly;
+            if (headerOnly) {
+                setThumbnailInvisible(true);
+                releaseThumbnail();
+            }
+        }
+    }
+
+    /**
+     * Returns whether only the header bar of this view is drawn, the thumbnail passed to
+     * onDataLoaded() is not used in that case and does not need to be loaded.
+     */
+    public boolean isHeaderOnly() {
+        return mHeaderOnly;
+    }
+
+    /**
+     * Releases the thumbnail bitmap.
+     */
+    void releaseThumbnail() {
+        if (mThumbnailView != null) {
+            mThumbnailView.unbindFromTask();
+        }
+    }
+
+    /**
+     * Sets whether the thumbnail is hidden behind the header bar of the task in front of it.
+     */
+    void setThumbnailInvisible(boolean invisible) {
+        mThumbnailView.setInvisible(invisible);
+    }
+
+    /**
+     * Returns whether the thumbnail is hidden behind the header bar of the task in front of it.
+     */
+    boolean isThumbnailInvisible() {
+        return mThumbnailView.mInvisible;
+    }
+
+    /**
+     * Sets the dim of the thumbnail, only used when we are not using hardware layers.
+     */
+    void setThumbnailDimAlpha(float dimAlpha) {
+        if (mThumbnailView != null) {
+            mThumbnailView.setDimAlpha(dimAlpha);
+        }
+    }
+
+    /**
+     * Returns the title shown in the header bar.
+     */
+    CharSequence getTitle() {
+        return mHeaderView != null ? mHeaderView.mActivityDescription.getText() : null;
+    }
+
+    /**
+     * Sets the amount of this view that is hidden behind the task in front of it, measured from the
+     * bottom of the view.  Nothing is drawn in that area.
+     */
+    void setClipBottom(int clipBottom) {
+        if (clipBottom != mClipBottom) {
+            mClipBottom = clipBottom;
+            invalidate();
+        }
+    }
+
+    /**
+     * Sets whether this view is completely covered by the task in front of it.
+     */
+    void setOccludedInStack(boolean occluded) {
+        if (occluded != mIsOccludedInStack) {
+            mIsOccludedInStack = occluded;
+            invalidate();
+        }
+    }
+
+    /**
+     * Returns whether this view is completely covered by the task in front of it.
+     */
+    boolean isOccludedInStack() {
+        return mIsOccludedInStack;
+    }
+
+    /**
+     * Updates whether this view is drawn as an impostor for the current task progress.
+     */
+    void updateImpostorState() {
+        setImpostor(mConfig.taskViewImpostorsEnabled && !mConfig.useHardwareLayers && !mIsFocused
+                && mTaskProgress < mConfig.taskViewImpostorMaxProgress);
+    }
+
+    /**
+     * Sets whether this view is drawn from a cached snapshot instead of its view hierarchy.
+     */
+    void setImpostor(boolean impostor) {
+        if (impostor != mIsImpostor) {
+            mIsImpostor = impostor;
+            if (impostor && !mHeaderOnly) {
+                // The snapshot always has the thumbnail, see setVisibleContentHeight()
+                setThumbnailInvisible(false);
+            }
+            // Move the dim between the thumbnail and the snapshot
+            setThumbnailDimAlpha(impostor ? 0f : mDimAlpha / 255.0f);
+            invalidate();
+        }
+    }
+
+    /**
+     * Returns the snapshot bitmap to the pool.
+     */
+    void releaseImpostor() {
+        mImpostorDirty = true;
+        if (mImpostorBitmap != null) {
+            if (mImpostorPool != null) {
+                mImpostorPool.release(mImpostorBitmap);
+            } else {
+                mImpostorBitmap.recycle();
+            }
+            mImpostorBitmap = null;
+        }
+    }
+
+    /**
+     * Marks the impostor snapshot as stale, so that it is retaken before it is next drawn.  The
+     * snapshot of a view that is not an impostor is released instead, since it is not drawn.
+     */
+    void invalidateImpostor() {
+        if (mIsImpostor) {
+            mImpostorDirty = true;
+            invalidate();
+        } else {
+            releaseImpostor();
+        }
+    }
+
+    /**
+     * Retakes the impostor snapshot if it is stale.  Called by the stack before it draws, so that
+     * the software drawing of the view hierarchy into the snapshot never happens within draw().
+     */
+    void updateImpostor() {
+        int width = getWidth();
+        int height = getHeight();
+        if (!mIsImpostor || !mImpostorDirty || mIsOccludedInStack || width <= 0 || height <= 0) {
+            return;
+        }
+
+        // Take the snapshot at a reduced size, the task is small and dimmed this far back
+        int bitmapWidth = Math.max(1, (int) (width * ImpostorScale));
+        int bitmapHeight = Math.max(1, (int) (height * ImpostorScale));
+        if (mImpostorBitmap != null && (mImpostorBitmap.getWidth() != bitmapWidth
+                || mImpostorBitmap.getHeight() != bitmapHeight)) {
+            releaseImpostor();
+        }
+        if (mImpostorBitmap == null) {
+            mImpostorBitmap = (mImpostorPool != null)
+                    ? mImpostorPool.acquire(bitmapWidth, bitmapHeight)
+                    : Bitmap.createBitmap(bitmapWidth, bitmapHeight, Bitmap.Config.ARGB_8888);
+        }
+
+        DVTrace.beginSection("DeckChildView.updateImpostor");
+        mImpostorBitmap.eraseColor(Color.TRANSPARENT);
+        mImpostorCanvas.setBitmap(mImpostorBitmap);
+        int count = mImpostorCanvas.save();
+        mImpostorCanvas.scale((float) bitmapWidth / width, (float) bitmapHeight / height);
+        super.draw(mImpostorCanvas);
+        mImpostorCanvas.restoreToCount(count);
+        mImpostorCanvas.setBitmap(null);
+        mImpostorDirty = false;
+        DVTrace.endSection();
+    }
+
+    /**
+     * Returns the level of detail of the effects for the current task progress.
+     */
+    int getEffectsLodFromTaskProgress() {
+        if (mTaskProgress < mConfig.taskViewLodMinimalMaxProgress) {
+            return EffectsLodMinimal;
+        } else if (mTaskProgress < mConfig.taskViewLodReducedMaxProgress) {
+            return EffectsLodReduced;
+        }
+        return EffectsLodFull;
+    }
+
+    /**
+     * Sets the level of detail of the shadow, highlight and anti-aliasing of this view.
+     */
+    void setEffectsLod(int lod) {
+        if (lod != mEffectsLod) {
+            mEffectsLod = lod;
+            applyEffectsLod(lod);
+        }
+    }
+
+    /**
+     * Applies the level of detail of the effects to the shadow, header bar and thumbnail.
+     */
+    void applyEffectsLod(int lod) {
+        if (mFakeShadow != null) {
+            mFakeShadow.setShadowEnabled(lod < EffectsLodMinimal);
+        }
+        if (mHeaderView != null) {
+            mHeaderView.setHighlightEnabled(lod == EffectsLodFull);
+        }
+        if (mThumbnailView != null) {
+            mThumbnailView.setAntiAlias(lod == EffectsLodFull);
+        }
+    }
+
+    @Override
+    public void draw(Canvas canvas) {
+        if (mIsOccludedInStack) {
+            return;
+        }
+        if (mClipBottom <= 0) {
+            drawTask(canvas);
+            return;
+        }
+
+        int count = canvas.save(Canvas.CLIP_SAVE_FLAG);
+        canvas.clipRect(0, 0, getWidth(), getHeight() - mClipBottom);
+        drawTask(canvas);
+        canvas.restoreToCount(count);
+    }
+
+    /**
+     * Draws either the view hierarchy, or the impostor snapshot.  The view hierarchy is drawn
+     * until the snapshot has been taken, see updateImpostor().
+     */
+    void drawTask(Canvas canvas) {
+        if (!mIsImpostor || mImpostorDirty || mImpostorBitmap == null) {
+            super.draw(canvas);
+            return;
+        }
+
+        int width = getWidth();
+        int height = getHeight();
+        int bitmapWidth = mImpostorBitmap.getWidth();
+        int bitmapHeight = mImpostorBitmap.getHeight();
+        int count = canvas.save();
+        canvas.scale((float) width / bitmapWidth, (float) height / bitmapHeight);
+        canvas.drawBitmap(mImpostorBitmap, 0, 0, mImpostorPaint);
+        canvas.restoreToCount(count);
+
+        // Dim the thumbnail below the header bar, as the thumbnail itself would have
+        if (mDimAlpha > 0 && !isThumbnailInvisible()) {
+            float radius = mConfig.taskViewRoundedCornerRadiusPx;
+            float left = getPaddingLeft();
+            float top = getPaddingTop();
+            float right = width - getPaddingRight();
+            float bottom = top + (right - left);
+            count = canvas.save(Canvas.CLIP_SAVE_FLAG);
+            canvas.clipRect(left, top + mConfig.taskBarHeight, right, bottom);
+            mImpostorDimPaint.setColor(Color.argb(mDimAlpha, 0, 0, 0));
+            mTmpRectF.set(left, top, right, bottom);
+            canvas.drawRoundRect(mTmpRectF, radius, radius, mImpostorDimPaint);
+            canvas.restoreToCount(count);
+        }
+    }
+
     /**
      * Sets the current task progress.
      */
     public void setTaskProgress(float p) {
         mTaskProgress = p;
+        setEffectsLod(getEffectsLodFromTaskProgress());
+        updateImpostorState();
         updateDimFromTaskProgress();
     }
 
@@ -384,8 +748,11 @@ public class DeckChildView<T> extends FrameLayout implements
      * Returns the current dim.
      */
     public void setDim(int dim) {
+        if (mIsImpostor && dim == mDimAlpha) {
+            return;
+        }
         mDimAlpha = dim;
-        if (mConfig.useHardwareLayers) {
+        if (mConfig.useHardwareLayers && mContent != null) {
             // Defer setting hardware layers if we have not yet measured, or there is no dim to draw
             if (getMeasuredWidth() > 0 && getMeasuredHeight() > 0) {
                 mDimColorFilter =
@@ -394,11 +761,11 @@ public class DeckChildView<T> extends FrameLayout implements
                 mDimLayerPaint.setColorFilter(mDimColorFilter);
                 mContent.setLayerType(LAYER_TYPE_HARDWARE, mDimLayerPaint);
             }
+        } else if (mIsImpostor) {
+            // The dim is drawn over the snapshot
+            invalidate();
         } else {
-            float dimAlpha = mDimAlpha / 255.0f;
-            if (mThumbnailView != null) {
-                mThumbnailView.setDimAlpha(dimAlpha);
-            }
+            setThumbnailDimAlpha(mDimAlpha / 255.0f);
         }
     }
 
@@ -433,12 +800,9 @@ public class DeckChildView<T> extends FrameLayout implements
      */
     public void setFocusedTask(boolean animateFocusedState) {
         mIsFocused = true;
-        if (mFocusAnimationsEnabled) {
-            // Focus the header bar
-            mHeaderView.onTaskViewFocusChanged(true, animateFocusedState);
-        }
-        // Update the thumbnail alpha with the focus
-        mThumbnailView.onFocusChanged(true);
+        updateImpostorState();
+        invalidateImpostor();
+        onContentFocusChanged(true, animateFocusedState);
         // Call the callback
         if (mCb != null) {
             mCb.onDeckChildViewFocusChanged(this, true);
@@ -457,13 +821,9 @@ public class DeckChildView<T> extends FrameLayout implements
      */
     void unsetFocusedTask() {
         mIsFocused = false;
-        if (mFocusAnimationsEnabled) {
-            // Un-focus the header bar
-            mHeaderView.onTaskViewFocusChanged(false, true);
-        }
-
-        // Update the thumbnail alpha with the focus
-        mThumbnailView.onFocusChanged(false);
+        updateImpostorState();
+        invalidateImpostor();
+        onContentFocusChanged(false, true);
         // Call the callback
         if (mCb != null) {
             mCb.onDeckChildViewFocusChanged(this, false);
@@ -471,6 +831,18 @@ public class DeckChildView<T> extends FrameLayout implements
         invalidate();
     }
 
+    /**
+     * Updates the header bar and the thumbnail with the focus.
+     */
+    void onContentFocusChanged(boolean focused, boolean animateFocusedState) {
+        if (mFocusAnimationsEnabled) {
+            // Focus or un-focus the header bar
+            mHeaderView.onTaskViewFocusChanged(focused, animateFocusedState);
+        }
+        // Update the thumbnail alpha with the focus
+        mThumbnailView.onFocusChanged(focused);
+    }
+
     /**
      * Updates the explicitly focused state when the view focus changes.
      */
@@ -495,7 +867,7 @@ public class DeckChildView<T> extends FrameLayout implements
     void enableFocusAnimations() {
         boolean wasFocusAnimationsEnabled = mFocusAnimationsEnabled;
         mFocusAnimationsEnabled = true;
-        if (mIsFocused && !wasFocusAnimationsEnabled) {
+        if (mIsFocused && !wasFocusAnimationsEnabled && mHeaderView != null) {
             // Re-notify the header if we were focused and animations were not previously enabled
             mHeaderView.onTaskViewFocusChanged(true, true);
         }
@@ -510,7 +882,7 @@ public class DeckChildView<T> extends FrameLayout implements
         mKey = key;
     }
 
-    private boolean isBound() {
+    boolean isBound() {
         return mKey != null;
     }
 
@@ -519,6 +891,7 @@ public class DeckChildView<T> extends FrameLayout implements
      */
     public void onTaskUnbound() {
         mKey = null;
+        mAdapterIndex = -1;
     }
 
     public void onDataLoaded(T key, Bitmap thumbnail, Drawable headerIcon,
@@ -528,7 +901,7 @@ public class DeckChildView<T> extends FrameLayout implements
 
         if (mThumbnailView != null && mHeaderView != null) {
             // Bind each of the views to the new task data
-            mThumbnailView.rebindToTask(thumbnail);
+            mThumbnailView.rebindToTask(mHeaderOnly ? null : thumbnail);
             mHeaderView.rebindToTask(headerIcon, headerTitle, headerBgColor);
             // Rebind any listeners
             mHeaderView.mApplicationIcon.setOnClickListener(this);
@@ -537,6 +910,7 @@ public class DeckChildView<T> extends FrameLayout implements
             // TODO: Check if this functionality is needed
             mHeaderView.mApplicationIcon.setOnLongClickListener(this);
         }
+        invalidateImpostor();
     }
 
     public void onDataUnloaded() {
@@ -550,6 +924,7 @@ public class DeckChildView<T> extends FrameLayout implements
             mHeaderView.mDismissButton.setOnClickListener(null);
             mHeaderView.mApplicationIcon.setOnLongClickListener(null);
         }
+        releaseImpostor();
     }
 
     /**
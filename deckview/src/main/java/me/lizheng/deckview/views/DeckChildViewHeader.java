@@ -34,6 +34,7 @@ import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.GradientDrawable;
 import android.support.v4.content.ContextCompat;
+import android.text.TextUtils;
 import android.util.AttributeSet;
 import android.view.View;
 import android.widget.FrameLayout;
@@ -63,6 +64,8 @@ public class DeckChildViewHeader extends FrameLayout {
     GradientDrawable mBackgroundColorDrawable;
     AnimatorSet mFocusAnimator;
     String mDismissContentDescription;
+    String mTitle;
+    boolean mHighlightEnabled = true;
 
     // Static highlight that we draw at the top of each view
     static Paint sHighlightPaint;
@@ -77,7 +80,7 @@ public class DeckChildViewHeader extends FrameLayout {
 
     public DeckChildViewHeader(Context context, AttributeSet attrs, int defStyleAttr) {
         super(context, attrs, defStyleAttr);
-        mConfig = DeckViewConfig.getInstance();
+        mConfig = DeckViewConfig.from(context);
         setWillNotDraw(false);
 
         // Load the dismiss resources
@@ -122,6 +125,10 @@ public class DeckChildViewHeader extends FrameLayout {
     @SuppressLint("DrawAllocation")
     @Override
     protected void onDraw(Canvas canvas) {
+        if (!mHighlightEnabled) {
+            return;
+        }
+
         // Draw the highlight at the top edge (but put the bottom edge just out of view)
         float offset = (float) Math.ceil(mConfig.taskViewHighlightPx / 2f);
         float radius = mConfig.taskViewRoundedCornerRadiusPx;
@@ -132,6 +139,16 @@ public class DeckChildViewHeader extends FrameLayout {
         canvas.restoreToCount(count);
     }
 
+    /**
+     * Sets whether the highlight is drawn at the top edge.
+     */
+    void setHighlightEnabled(boolean enabled) {
+        if (enabled != mHighlightEnabled) {
+            mHighlightEnabled = enabled;
+            invalidate();
+        }
+    }
+
     @Override
     public boolean hasOverlappingRendering() {
         return false;
@@ -152,9 +169,15 @@ public class DeckChildViewHeader extends FrameLayout {
         // If an activity icon is defined, then we use that as the primary icon to show in the bar,
         // otherwise, we fall back to the application icon
         mApplicationIcon.setImageDrawable(headerIcon);
-        mApplicationIcon.setContentDescription(headerTitle);
 
-        mActivityDescription.setText(headerTitle);
+        // Only measure the title and format the descriptions if the title changed
+        if (!TextUtils.equals(mTitle, headerTitle)) {
+            mTitle = headerTitle;
+            mApplicationIcon.setContentDescription(headerTitle);
+            mActivityDescription.setText(headerTitle);
+            mDismissButton.setContentDescription(String.format(mDismissContentDescription,
+                    headerTitle));
+        }
 
         // Try and apply the system ui tint
         int existingBgColor = (getBackground() instanceof ColorDrawable) ?
@@ -167,8 +190,6 @@ public class DeckChildViewHeader extends FrameLayout {
         //mCurrentPrimaryColorIsDark = t.useLightOnPrimaryColor;
         mActivityDescription.setTextColor(mConfig.taskBarViewLightTextColor);
         mDismissButton.setImageDrawable(mLightDismissDrawable);
-        mDismissButton.setContentDescription(String.format(mDismissContentDescription,
-                headerTitle));
     }
 
     /**
@@ -20,7 +20,6 @@ package me.lizheng.deckview.views;
 import android.animation.Animator;
 import android.animation.AnimatorListenerAdapter;
 import android.animation.ValueAnimator;
-import android.annotation.SuppressLint;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.BitmapShader;
@@ -33,6 +32,7 @@ import android.graphics.Rect;
 import android.graphics.RectF;
 import android.graphics.Shader;
 import android.util.AttributeSet;
+import android.util.SparseArray;
 import android.view.View;
 
 import me.lizheng.deckview.helpers.DeckViewConfig;
@@ -44,6 +44,13 @@ import me.lizheng.deckview.utilities.DVUtils;
  */
 public class DeckChildViewThumbnail extends View {
 
+    // The thumbnail filters for each multiply and add component, shared by all thumbnails so that
+    // animating the dim does not allocate a filter per frame.  The components are quantized, and
+    // the cache is dropped if it ever grows past its cap, so it stays small.
+    static final int LightingColorFilterQuantum = 4;
+    static final int MaxLightingColorFilters = 256;
+    static final SparseArray<LightingColorFilter> sLightingColorFilters = new SparseArray<>();
+
     DeckViewConfig mConfig;
 
     // Drawing
@@ -86,7 +93,7 @@ public class DeckChildViewThumbnail extends View {
 
     public DeckChildViewThumbnail(Context context, AttributeSet attrs, int defStyleAttr) {
         super(context, attrs, defStyleAttr);
-        mConfig = DeckViewConfig.getInstance();
+        mConfig = DeckViewConfig.from(context);
         mDrawPaint.setColorFilter(mLightingColorFilter);
         mDrawPaint.setFilterBitmap(true);
         mDrawPaint.setAntiAlias(true);
@@ -108,7 +115,6 @@ public class DeckChildViewThumbnail extends View {
         }
     }
 
-    @SuppressLint("DrawAllocation")
     @Override
     protected void onDraw(Canvas canvas) {
         if (mInvisible) {
@@ -116,7 +122,7 @@ public class DeckChildViewThumbnail extends View {
         }
 
         // Draw the thumbnail with the rounded corners
-        canvas.drawRoundRect(new RectF(0, 0, getWidth(), getHeight()),
+        canvas.drawRoundRect(mLayoutRect,
                 mConfig.taskViewRoundedCornerRadiusPx,
                 mConfig.taskViewRoundedCornerRadiusPx, mDrawPaint);
     }
@@ -150,9 +156,7 @@ public class DeckChildViewThumbnail extends View {
         int mul = (int) ((1.0f - mDimAlpha) * mThumbnailAlpha * 255);
         int add = (int) ((1.0f - mDimAlpha) * (1 - mThumbnailAlpha) * 255);
         if (mBitmapShader != null) {
-            mLightingColorFilter =
-                    new LightingColorFilter(Color.argb(255, mul, mul, mul),
-                            Color.argb(0, add, add, add));
+            mLightingColorFilter = getLightingColorFilter(mul, add);
             mDrawPaint.setColorFilter(mLightingColorFilter);
             mDrawPaint.setColor(0xffffffff);
         } else {
@@ -163,6 +167,33 @@ public class DeckChildViewThumbnail extends View {
         invalidate();
     }
 
+    /**
+     * Returns the shared filter for the multiply and add components, creating it the first time.
+     */
+    static LightingColorFilter getLightingColorFilter(int mul, int add) {
+        mul = quantizeColorComponent(mul);
+        add = quantizeColorComponent(add);
+        int key = (mul << 8) | add;
+        LightingColorFilter filter = sLightingColorFilters.get(key);
+        if (filter == null) {
+            if (sLightingColorFilters.size() >= MaxLightingColorFilters) {
+                sLightingColorFilters.clear();
+            }
+            filter = new LightingColorFilter(Color.argb(255, mul, mul, mul),
+                    Color.argb(0, add, add, add));
+            sLightingColorFilters.put(key, filter);
+        }
+        return filter;
+    }
+
+    /**
+     * Rounds a color component to the nearest filter quantum, keeping it within [0, 255].
+     */
+    static int quantizeColorComponent(int c) {
+        int q = LightingColorFilterQuantum;
+        return Math.max(0, Math.min(255, ((c + q / 2) / q) * q));
+    }
+
     /**
      * Updates the thumbnail shader's scale transform.
      */
@@ -183,6 +214,32 @@ public class DeckChildViewThumbnail extends View {
         mClipRect.set(0, top, getMeasuredWidth(), getMeasuredHeight());
     }
 
+    /**
+     * Sets whether the thumbnail is hidden behind the header bar of the task in front of it, in
+     * which case we skip drawing it.
+     */
+    void setInvisible(boolean invisible) {
+        if (invisible != mInvisible) {
+            mInvisible = invisible;
+            if (invisible) {
+                invalidate();
+            } else {
+                // We skip updating the paint while invisible, so catch up now
+                updateThumbnailPaintFilter();
+            }
+        }
+    }
+
+    /**
+     * Sets whether the rounded corners of the thumbnail are anti-aliased.
+     */
+    void setAntiAlias(boolean antiAlias) {
+        if (antiAlias != mDrawPaint.isAntiAlias()) {
+            mDrawPaint.setAntiAlias(antiAlias);
+            invalidate();
+        }
+    }
+
     /**
      * Sets the dim alpha, only used when we are not using hardware layers.
      * (see RecentsConfiguration.useHardwareLayers)
@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2016 Zheng Li <https://lizheng.me>
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.lizheng.deckview.views;
+
+import android.content.Context;
+import android.os.Process;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.util.LruCache;
+
+import java.util.HashSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import me.lizheng.deckview.R;
+import me.lizheng.deckview.helpers.DeckViewConfig;
+
+/**
+ * Caches the header title layouts of the flattened task views, keyed by the title and the width
+ * it is laid out in.  The layouts of the tasks just outside the visible range are computed ahead
+ * of time on a background thread, so that binding a task view as it scrolls into view does not
+ * have to measure any text on the UI thread.  The prefetches that are still queued when the
+ * visible range moves on are dropped.
+ */
+public class DeckChildViewTitleCache {
+
+    // The thread the titles are prefetched on, shared by all the caches
+    static ExecutorService sPrefetchExecutor;
+
+    /* The key of a title layout */
+    static class Key {
+        String title;
+        int width;
+
+        Key(String title, int width) {
+            this.title = title;
+            this.width = width;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return width == k.width && title.equals(k.title);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * title.hashCode() + width;
+        }
+    }
+
+    // The paints of the UI thread and of the prefetch thread, which are never used concurrently
+    TextPaint mPaint = new TextPaint(TextPaint.ANTI_ALIAS_FLAG);
+    TextPaint mPrefetchPaint;
+    LruCache<Key, Layout> mLayouts;
+    // The keys in the current prefetch window that have not been laid out yet
+    final HashSet<Key> mPendingKeys = new HashSet<>();
+    int mLastWidth = -1;
+
+    // Optimizations
+    Key mLookupKey = new Key("", 0);
+
+    public DeckChildViewTitleCache(Context context, DeckViewConfig config) {
+        mLayouts = new LruCache<>(config.svelteMaxCachedTitleLayouts);
+        mPaint.setTextSize(context.getResources().getDimension(
+                R.dimen.deck_child_view_header_title_text_size));
+        mPaint.setColor(config.taskBarViewLightTextColor);
+        mPrefetchPaint = new TextPaint(mPaint);
+    }
+
+    /**
+     * Returns the executor shared by all the caches to prefetch the titles.
+     */
+    static ExecutorService getPrefetchExecutor() {
+        if (sPrefetchExecutor == null) {
+            sPrefetchExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable r) {
+                    Thread thread = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            r.run();
+                        }
+                    }, "DeckViewTitlePrefetch");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sPrefetchExecutor;
+    }
+
+    /**
+     * Returns the layout of the title at the given width, computing it now if it was not
+     * prefetched.
+     */
+    Layout getLayout(String title, int width) {
+        mLastWidth = width;
+        Layout layout = mLayouts.get(lookupKey(title, width));
+        if (layout == null) {
+            layout = createLayout(mPaint, title, width);
+            mLayouts.put(new Key(title, width), layout);
+        }
+        return layout;
+    }
+
+    /**
+     * Returns the reused key to look up a layout with, must only be used on the UI thread.
+     */
+    Key lookupKey(String title, int width) {
+        mLookupKey.title = title;
+        mLookupKey.width = width;
+        return mLookupKey;
+    }
+
+    /**
+     * Starts a new prefetch window, the titles that are still queued are dropped unless they are
+     * prefetched again.
+     */
+    void beginPrefetch() {
+        synchronized (mPendingKeys) {
+            mPendingKeys.clear();
+        }
+    }
+
+    /**
+     * Computes the layout of the title in the background, at the width of the last title that was
+     * laid out.
+     */
+    void prefetch(String title) {
+        int width = mLastWidth;
+        if (width < 0 || TextUtils.isEmpty(title)) return;
+        if (mLayouts.get(lookupKey(title, width)) != null) return;
+
+        final Key key = new Key(title, width);
+        synchronized (mPendingKeys) {
+            if (!mPendingKeys.add(key)) return;
+        }
+
+        getPrefetchExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (mPendingKeys) {
+                    // Skip the titles that fell out of the prefetch window while queued
+                    if (!mPendingKeys.remove(key)) return;
+                }
+                mLayouts.put(key, createLayout(mPrefetchPaint, key.title, key.width));
+            }
+        });
+    }
+
+    /**
+     * Ellipsizes the title to a single line of the given width, and lays it out.
+     */
+    static Layout createLayout(TextPaint paint, String title, int width) {
+        CharSequence text = TextUtils.ellipsize(title, paint, width, TextUtils.TruncateAt.END);
+        return new StaticLayout(text, paint, width, Layout.Alignment.ALIGN_NORMAL, 1f, 0f, false);
+    }
+}
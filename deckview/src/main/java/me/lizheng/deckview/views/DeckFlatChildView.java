@@ -0,0 +1,480 @@
+/*
+ * Copyright (C) 2016 Zheng Li <https://lizheng.me>
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.lizheng.deckview.views;
+
+import android.animation.ValueAnimator;
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.graphics.drawable.Drawable;
+import android.support.v4.content.ContextCompat;
+import android.text.Layout;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.ViewConfiguration;
+
+import me.lizheng.deckview.R;
+import me.lizheng.deckview.utilities.DVUtils;
+
+/**
+ * A task view that draws the header bar, icon, title, dismiss button and thumbnail from a single
+ * onDraw(), instead of measuring, laying out and drawing a hierarchy of views for each task.  The
+ * title layout is taken from the title cache when the task is bound or resized, and the dismiss
+ * button is a hit region rather than a view.  It is bound and recycled exactly like a DeckChildView.
+ */
+public class DeckFlatChildView<T> extends DeckChildView<T> {
+
+    // Static highlight that we draw at the top of each view
+    static Paint sHighlightPaint;
+
+    // Header metrics, read from the same dimens as deck_child_view_header
+    int mIconSizePx;
+    int mIconLeftPx;
+    int mTitleMarginPx;
+    int mDismissSizePx;
+    int mDismissMarginPx;
+    int mDismissPaddingPx;
+    int mTouchSlop;
+
+    // Header
+    Paint mHeaderPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    TextPaint mTitlePaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    String mTitle;
+    Layout mTitleLayout;
+    int mTitleLayoutWidth = -1;
+    DeckChildViewTitleCache mTitleCache;
+    Drawable mIcon;
+    Drawable mDismissDrawable;
+    boolean mDismissVisible;
+    float mDismissAlpha;
+    ValueAnimator mDismissAnimator;
+    boolean mDismissPressed;
+    Rect mDismissRect = new Rect();
+    boolean mHighlightEnabled = true;
+
+    // Thumbnail
+    Bitmap mThumbnail;
+    BitmapShader mThumbnailShader;
+    Paint mThumbnailPaint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+    Matrix mThumbnailMatrix = new Matrix();
+    float mThumbnailAlpha;
+    float mThumbnailDimAlpha;
+    boolean mThumbnailInvisible;
+    ValueAnimator mThumbnailAlphaAnimator;
+
+    // Optimizations
+    RectF mContentRect = new RectF();
+    RectF mBitmapRect = new RectF();
+    RectF mDrawRect = new RectF();
+    ValueAnimator.AnimatorUpdateListener mDismissAlphaUpdateListener =
+            new ValueAnimator.AnimatorUpdateListener() {
+                @Override
+                public void onAnimationUpdate(ValueAnimator animation) {
+                    mDismissAlpha = (float) animation.getAnimatedValue();
+                    invalidate();
+                }
+            };
+    ValueAnimator.AnimatorUpdateListener mThumbnailAlphaUpdateListener =
+            new ValueAnimator.AnimatorUpdateListener() {
+                @Override
+                public void onAnimationUpdate(ValueAnimator animation) {
+                    mThumbnailAlpha = (float) animation.getAnimatedValue();
+                    updateThumbnailPaintFilter();
+                }
+            };
+
+    public DeckFlatChildView(Context context) {
+        this(context, null);
+    }
+
+    public DeckFlatChildView(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public DeckFlatChildView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        setWillNotDraw(false);
+
+        Resources res = context.getResources();
+        // The icon is drawn inside the padding of the icon view in the header layout
+        int iconPaddingPx = res.getDimensionPixelSize(R.dimen.deck_child_view_header_icon_padding);
+        mIconSizePx = res.getDimensionPixelSize(R.dimen.task_view_application_icon_size)
+                - 2 * iconPaddingPx;
+        mIconLeftPx = res.getDimensionPixelSize(R.dimen.deck_child_view_header_icon_margin)
+                + iconPaddingPx;
+        mTitleMarginPx = res.getDimensionPixelSize(R.dimen.deck_child_view_header_title_margin);
+        mDismissSizePx = res.getDimensionPixelSize(R.dimen.deck_child_view_header_dismiss_size);
+        mDismissMarginPx = res.getDimensionPixelSize(R.dimen.deck_child_view_header_dismiss_margin);
+        mDismissPaddingPx =
+                res.getDimensionPixelSize(R.dimen.deck_child_view_header_dismiss_padding);
+        mTouchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
+
+        mTitlePaint.setTextSize(res.getDimension(R.dimen.deck_child_view_header_title_text_size));
+        mTitlePaint.setColor(mConfig.taskBarViewLightTextColor);
+        mHeaderPaint.setColor(mConfig.taskBarViewDefaultBackgroundColor);
+        mDismissDrawable = ContextCompat.getDrawable(context,
+                R.drawable.deck_child_view_dismiss_light);
+        mThumbnailAlpha = mConfig.taskViewThumbnailAlpha;
+        updateThumbnailPaintFilter();
+
+        // Configure the highlight paint
+        if (sHighlightPaint == null) {
+            sHighlightPaint = new Paint();
+            sHighlightPaint.setStyle(Paint.Style.STROKE);
+            sHighlightPaint.setStrokeWidth(mConfig.taskViewHighlightPx);
+            sHighlightPaint.setColor(mConfig.taskBarViewHighlightColor);
+            sHighlightPaint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.ADD));
+            sHighlightPaint.setAntiAlias(true);
+        }
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+        int height = MeasureSpec.getSize(heightMeasureSpec);
+        setMeasuredDimension(width, height);
+        updateContentLayout(width);
+    }
+
+    /**
+     * Lays out the content to be square, with the header bar at the top.
+     */
+    void updateContentLayout(int width) {
+        int widthWithoutPadding = width - getPaddingLeft() - getPaddingRight();
+        mContentRect.set(getPaddingLeft(), getPaddingTop(),
+                getPaddingLeft() + widthWithoutPadding, getPaddingTop() + widthWithoutPadding);
+        int barTop = getPaddingTop();
+        int barCenterY = barTop + mConfig.taskBarHeight / 2;
+
+        if (mIcon != null) {
+            int iconLeft = getPaddingLeft() + mIconLeftPx;
+            int iconTop = barCenterY - mIconSizePx / 2;
+            mIcon.setBounds(iconLeft, iconTop, iconLeft + mIconSizePx, iconTop + mIconSizePx);
+        }
+        int dismissRight = getPaddingLeft() + widthWithoutPadding - mDismissMarginPx;
+        int dismissTop = barCenterY - mDismissSizePx / 2;
+        mDismissRect.set(dismissRight - mDismissSizePx, dismissTop, dismissRight,
+                dismissTop + mDismissSizePx);
+        mDismissDrawable.setBounds(mDismissRect.left + mDismissPaddingPx,
+                mDismissRect.top + mDismissPaddingPx, mDismissRect.right - mDismissPaddingPx,
+                mDismissRect.bottom - mDismissPaddingPx);
+
+        updateThumbnailScale();
+        updateTitleLayout(widthWithoutPadding - 2 * mTitleMarginPx);
+    }
+
+    /**
+     * Computes the title layout for the given width, if it has changed since it was last computed.
+     */
+    void updateTitleLayout(int width) {
+        width = Math.max(0, width);
+        if (mTitleLayout != null && mTitleLayoutWidth == width) {
+            return;
+        }
+        mTitleLayoutWidth = width;
+        if (TextUtils.isEmpty(mTitle)) {
+            mTitleLayout = null;
+            return;
+        }
+        if (mTitleCache != null) {
+            mTitleLayout = mTitleCache.getLayout(mTitle, width);
+        } else {
+            mTitleLayout = DeckChildViewTitleCache.createLayout(mTitlePaint, mTitle, width);
+        }
+    }
+
+    /**
+     * Updates the thumbnail shader to fill the content.
+     */
+    void updateThumbnailScale() {
+        if (mThumbnailShader != null) {
+            mThumbnailMatrix.setRectToRect(mBitmapRect, mContentRect, Matrix.ScaleToFit.FILL);
+            mThumbnailShader.setLocalMatrix(mThumbnailMatrix);
+        }
+    }
+
+    /**
+     * Updates the paint to draw the thumbnail with the current dim and alpha.
+     */
+    void updateThumbnailPaintFilter() {
+        int mul = (int) ((1.0f - mThumbnailDimAlpha) * mThumbnailAlpha * 255);
+        int add = (int) ((1.0f - mThumbnailDimAlpha) * (1 - mThumbnailAlpha) * 255);
+        if (mThumbnailShader != null) {
+            mThumbnailPaint.setColorFilter(DeckChildViewThumbnail.getLightingColorFilter(mul, add));
+            mThumbnailPaint.setColor(0xffffffff);
+        } else {
+            int grey = mul + add;
+            mThumbnailPaint.setColorFilter(null);
+            mThumbnailPaint.setColor(Color.argb(255, grey, grey, grey));
+        }
+        if (!mThumbnailInvisible) {
+            invalidate();
+        }
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        float radius = mConfig.taskViewRoundedCornerRadiusPx;
+        float barBottom = mContentRect.top + mConfig.taskBarHeight;
+
+        // Draw the thumbnail with the rounded corners, below the header bar
+        if (!mThumbnailInvisible) {
+            int count = canvas.save(Canvas.CLIP_SAVE_FLAG);
+            canvas.clipRect(mContentRect.left, barBottom - 1, mContentRect.right,
+                    mContentRect.bottom);
+            canvas.drawRoundRect(mContentRect, radius, radius, mThumbnailPaint);
+            canvas.restoreToCount(count);
+        }
+
+        // Draw the header bar with the rounded top corners, and the highlight at its top edge
+        int count = canvas.save(Canvas.CLIP_SAVE_FLAG);
+        canvas.clipRect(mContentRect.left, mContentRect.top, mContentRect.right, barBottom);
+        mDrawRect.set(mContentRect.left, mContentRect.top, mContentRect.right, barBottom + radius);
+        canvas.drawRoundRect(mDrawRect, radius, radius, mHeaderPaint);
+        if (mHighlightEnabled) {
+            float offset = (float) Math.ceil(mConfig.taskViewHighlightPx / 2f);
+            mDrawRect.left -= offset;
+            mDrawRect.right += offset;
+            canvas.drawRoundRect(mDrawRect, radius, radius, sHighlightPaint);
+        }
+        canvas.restoreToCount(count);
+
+        // Draw the icon, title and dismiss button
+        if (mIcon != null) {
+            mIcon.draw(canvas);
+        }
+        if (mTitleLayout != null) {
+            count = canvas.save(Canvas.MATRIX_SAVE_FLAG);
+            canvas.translate(mContentRect.left + mTitleMarginPx,
+                    mContentRect.top + (mConfig.taskBarHeight - mTitleLayout.getHeight()) / 2);
+            mTitleLayout.draw(canvas);
+            canvas.restoreToCount(count);
+        }
+        if (mDismissVisible && mDismissAlpha > 0f) {
+            mDismissDrawable.setAlpha((int) (mDismissAlpha * 255));
+            mDismissDrawable.draw(canvas);
+        }
+    }
+
+    @Override
+    public boolean hasOverlappingRendering() {
+        return false;
+    }
+
+    /**
+     * Handles touches on the dismiss button, everything else is a click on the task.
+     */
+    @Override
+    public boolean onTouchEvent(MotionEvent ev) {
+        int x = (int) ev.getX();
+        int y = (int) ev.getY();
+        switch (ev.getAction() & MotionEvent.ACTION_MASK) {
+            case MotionEvent.ACTION_DOWN:
+                mDismissPressed = mDismissVisible && isEnabled() && mDismissRect.contains(x, y);
+                if (mDismissPressed) {
+                    return true;
+                }
+                break;
+            case MotionEvent.ACTION_MOVE:
+                if (mDismissPressed) {
+                    if (x < mDismissRect.left - mTouchSlop || x > mDismissRect.right + mTouchSlop
+                            || y < mDismissRect.top - mTouchSlop
+                            || y > mDismissRect.bottom + mTouchSlop) {
+                        mDismissPressed = false;
+                    }
+                    return true;
+                }
+                break;
+            case MotionEvent.ACTION_UP:
+                if (mDismissPressed) {
+                    mDismissPressed = false;
+                    dismissTask();
+                    return true;
+                }
+                break;
+            case MotionEvent.ACTION_CANCEL:
+                if (mDismissPressed) {
+                    mDismissPressed = false;
+                    return true;
+                }
+                break;
+        }
+        return super.onTouchEvent(ev);
+    }
+
+    @Override
+    void prepareEnterRecentsAnimation(boolean isTaskViewLaunchTargetTask,
+                                      boolean occludesLaunchTarget, int offscreenY) {
+        super.prepareEnterRecentsAnimation(isTaskViewLaunchTargetTask, occludesLaunchTarget,
+                offscreenY);
+        DVUtils.cancelAnimationWithoutCallbacks(mThumbnailAlphaAnimator);
+        mThumbnailAlpha = isTaskViewLaunchTargetTask ? 1f : mConfig.taskViewThumbnailAlpha;
+        updateThumbnailPaintFilter();
+    }
+
+    @Override
+    void startNoUserInteractionAnimation() {
+        if (mIsImpostor) {
+            // Don't animate the snapshot, the final state shows when it is next retaken
+            setNoUserInteractionState();
+            return;
+        }
+        if (!mDismissVisible) {
+            mDismissVisible = true;
+            mDismissAnimator = ValueAnimator.ofFloat(0f, 1f);
+            mDismissAnimator.setInterpolator(mConfig.fastOutLinearInInterpolator);
+            mDismissAnimator.setDuration(mConfig.taskViewEnterFromAppDuration);
+            mDismissAnimator.addUpdateListener(mDismissAlphaUpdateListener);
+            mDismissAnimator.start();
+        }
+    }
+
+    @Override
+    void setNoUserInteractionState() {
+        if (!mDismissVisible) {
+            DVUtils.cancelAnimationWithoutCallbacks(mDismissAnimator);
+            mDismissVisible = true;
+            mDismissAlpha = 1f;
+            invalidate();
+        }
+    }
+
+    @Override
+    void resetNoUserInteractionState() {
+        DVUtils.cancelAnimationWithoutCallbacks(mDismissAnimator);
+        mDismissVisible = false;
+        mDismissPressed = false;
+        invalidate();
+    }
+
+    @Override
+    void applyEffectsLod(int lod) {
+        super.applyEffectsLod(lod);
+        mHighlightEnabled = (lod == EffectsLodFull);
+        mHeaderPaint.setAntiAlias(lod == EffectsLodFull);
+        mThumbnailPaint.setAntiAlias(lod == EffectsLodFull);
+        invalidate();
+    }
+
+    @Override
+    void setThumbnailInvisible(boolean invisible) {
+        if (invisible != mThumbnailInvisible) {
+            mThumbnailInvisible = invisible;
+            invalidate();
+        }
+    }
+
+    @Override
+    boolean isThumbnailInvisible() {
+        return mThumbnailInvisible;
+    }
+
+    @Override
+    void setThumbnailDimAlpha(float dimAlpha) {
+        if (Float.compare(dimAlpha, mThumbnailDimAlpha) != 0) {
+            mThumbnailDimAlpha = dimAlpha;
+            updateThumbnailPaintFilter();
+        }
+    }
+
+    @Override
+    CharSequence getTitle() {
+        return mTitle;
+    }
+
+    @Override
+    void onContentFocusChanged(boolean focused, boolean animateFocusedState) {
+        // Update the thumbnail alpha with the focus
+        float finalAlpha = focused ? 1f : mConfig.taskViewThumbnailAlpha;
+        if (Float.compare(mThumbnailAlpha, finalAlpha) == 0) {
+            return;
+        }
+        DVUtils.cancelAnimationWithoutCallbacks(mThumbnailAlphaAnimator);
+        mThumbnailAlphaAnimator = ValueAnimator.ofFloat(mThumbnailAlpha, finalAlpha);
+        mThumbnailAlphaAnimator.setDuration(150);
+        mThumbnailAlphaAnimator.setInterpolator(mConfig.fastOutSlowInInterpolator);
+        mThumbnailAlphaAnimator.addUpdateListener(mThumbnailAlphaUpdateListener);
+        mThumbnailAlphaAnimator.start();
+    }
+
+    @Override
+    public void onDataLoaded(T key, Bitmap thumbnail, Drawable headerIcon,
+                             String headerTitle, int headerBgColor) {
+        if (!isBound() || !mKey.equals(key))
+            return;
+
+        // Bind the thumbnail, unless only the header bar is drawn
+        if (mHeaderOnly) {
+            thumbnail = null;
+        }
+        mThumbnail = thumbnail;
+        if (thumbnail != null) {
+            mThumbnailShader = new BitmapShader(thumbnail, Shader.TileMode.CLAMP,
+                    Shader.TileMode.CLAMP);
+            mThumbnailPaint.setShader(mThumbnailShader);
+            mBitmapRect.set(0, 0, thumbnail.getWidth(), thumbnail.getHeight());
+            updateThumbnailScale();
+        } else {
+            mThumbnailShader = null;
+            mThumbnailPaint.setShader(null);
+        }
+        updateThumbnailPaintFilter();
+
+        // Bind the header
+        mIcon = headerIcon;
+        mHeaderPaint.setColor(headerBgColor);
+        if (!TextUtils.equals(mTitle, headerTitle)) {
+            mTitle = headerTitle;
+            mTitleLayout = null;
+        }
+        if (getMeasuredWidth() > 0) {
+            // Lay out the new icon and title now rather than when drawing
+            updateContentLayout(getMeasuredWidth());
+        }
+        invalidate();
+        invalidateImpostor();
+    }
+
+    @Override
+    void releaseThumbnail() {
+        mThumbnail = null;
+        mThumbnailShader = null;
+        mThumbnailPaint.setShader(null);
+        updateThumbnailPaintFilter();
+    }
+
+    @Override
+    public void onDataUnloaded() {
+        releaseThumbnail();
+        mIcon = null;
+        invalidate();
+        releaseImpostor();
+    }
+}
@@ -18,43 +18,65 @@
 package me.lizheng.deckview.views;
 
 import android.animation.ValueAnimator;
-import android.annotation.SuppressLint;
+import android.annotation.TargetApi;
 import android.content.Context;
-import android.graphics.Matrix;
+import android.graphics.Canvas;
 import android.graphics.Rect;
+import android.os.Build;
 import android.support.v4.view.ViewCompat;
 import android.util.AttributeSet;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.MotionEvent;
 import android.view.View;
+import android.view.ViewTreeObserver;
 import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityNodeProvider;
 import android.widget.FrameLayout;
 
+import me.lizheng.deckview.BuildConfig;
 import me.lizheng.deckview.R;
+import me.lizheng.deckview.core.DeckTransform;
 import me.lizheng.deckview.helpers.DeckChildViewTransform;
 import me.lizheng.deckview.helpers.DeckViewConfig;
-import me.lizheng.deckview.utilities.DVUtils;
+import me.lizheng.deckview.helpers.DeckViewLaunchState;
+import me.lizheng.deckview.utilities.DVTrace;
 import me.lizheng.deckview.utilities.DozeTrigger;
 
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
-import java.util.HashMap;
 
 /* The visual representation of a task stack view */
 public class DeckView<T> extends FrameLayout implements /*TaskStack.TaskStackCallbacks,*/
         DeckChildView.DeckChildViewCallbacks<T>, DeckViewScroller.DeckViewScrollerCallbacks,
-        ViewPool.ViewPoolConsumer<DeckChildView<T>, T> {
+        ViewPool.ViewPoolConsumer<DeckChildView<T>, T>, ViewTreeObserver.OnPreDrawListener {
+
+    // The number of unused impostor snapshots kept for the task views to reuse
+    static final int ImpostorPoolSize = 4;
 
     DeckViewConfig mConfig;
+    DeckViewLaunchState mLaunchState = new DeckViewLaunchState();
 
     DeckViewLayoutAlgorithm<T> mLayoutAlgorithm;
     DeckViewScroller mStackScroller;
     DeckViewTouchHandler mTouchHandler;
+    DeckViewFastScroller mFastScroller;
+    DeckViewDebugOverlay mDebugOverlay;
+    DeckViewAccessibilityDispatcher mAccessibilityDispatcher;
+    DeckViewAccessibilityNodeProvider<T> mAccessibilityNodeProvider;
     ViewPool<DeckChildView<T>, T> mViewPool;
-    ArrayList<DeckChildViewTransform> mCurrentTaskTransforms = new ArrayList<>();
+    DeckViewBitmapPool mImpostorPool = new DeckViewBitmapPool(ImpostorPoolSize);
+    DeckViewTransformBuffer mCurrentTaskTransforms = new DeckViewTransformBuffer();
     DozeTrigger mUIDozeTrigger;
     Rect mTaskStackBounds = new Rect();
+    Rect mSystemInsets = new Rect();
+    Rect mLastTaskStackBounds = new Rect();
+    int mLastMeasuredWidth = -1;
+    int mLastMeasuredHeight = -1;
     int mFocusedTaskIndex = -1;
+    DeckChildViewTitleCache mTitleCache;
+    int mTitlePrefetchFrontIndex = -1;
+    int mTitlePrefetchBackIndex = -1;
 //    int mPrevAccessibilityFocusedIndex = -1;
 
     // Optimizations
@@ -64,14 +86,22 @@ public class DeckView<T> extends FrameLayout implements /*TaskStack.TaskStackCal
     boolean mAwaitingFirstLayout = true;
     boolean mStartEnterAnimationRequestedAfterLayout;
     boolean mStartEnterAnimationCompleted;
+    // Whether the fast scroller is being dragged, the tasks bound meanwhile only get their headers
+    // and their thumbnails are loaded on release
+    boolean mFastScrolling;
+    int mCulledTaskViewCount;
+    int mCulledThumbnailCount;
     ViewAnimation.TaskViewEnterContext mStartEnterAnimationContext;
-    int[] mTmpVisibleRange = new int[2];
-    float[] mTmpCoord = new float[2];
-    Matrix mTmpMatrix = new Matrix();
+    int[] mVisibleRange = new int[]{-1, -1};
+    DeckChildView[] mVisibleTaskViews = new DeckChildView[0];
     Rect mTmpRect = new Rect();
     DeckChildViewTransform mTmpTransform = new DeckChildViewTransform();
-    HashMap<T, DeckChildView> mTmpTaskViewMap = new HashMap<>();
+    DeckTransform mTmpStackTransform = new DeckTransform();
+    DeckTransform mTmpStackPrevTransform = new DeckTransform();
     LayoutInflater mInflater;
+    DeckViewFrameMetrics mFrameMetrics = new DeckViewFrameMetrics();
+    // The metrics of the frame being computed, only set while a listener is registered
+    DeckViewFrameMetrics mActiveFrameMetrics;
 
     // A convenience update listener to request updating clipping of tasks
     ValueAnimator.AnimatorUpdateListener mRequestUpdateClippingListener =
@@ -92,20 +122,38 @@ public class DeckView<T> extends FrameLayout implements /*TaskStack.TaskStackCal
 
     public DeckView(Context context, AttributeSet attrs, int defStyleAttr) {
         super(context, attrs, defStyleAttr);
-        DeckViewConfig.reinitialize(getContext());
-        mConfig = DeckViewConfig.getInstance();
+        mConfig = new DeckViewConfig.Builder(context).build();
     }
 
     public void initialize(Callback<T> callback) {
+        initialize(callback, mConfig);
+    }
+
+    /**
+     * Initializes the stack with its own config, built with {@link DeckViewConfig.Builder}.
+     */
+    public void initialize(Callback<T> callback, DeckViewConfig config) {
         mCallback = callback;
+        mConfig = config;
         requestLayout();
 
         mViewPool = new ViewPool<>(getContext(), this);
-        mInflater = LayoutInflater.from(getContext());
+        mViewPool.setMaxPoolSize(mConfig.svelteMaxViewPoolSize);
+        // The task views find the config through the context they are inflated with, the inflater
+        // of a plain wrapper would still inflate with the base context
+        mInflater = LayoutInflater.from(getContext()).cloneInContext(
+                new DeckViewConfig.ConfigContextWrapper(getContext(), mConfig));
         mLayoutAlgorithm = new DeckViewLayoutAlgorithm<>(mConfig);
         mStackScroller = new DeckViewScroller(getContext(), mConfig, mLayoutAlgorithm);
         mStackScroller.setCallbacks(this);
         mTouchHandler = new DeckViewTouchHandler(getContext(), this, mConfig, mStackScroller);
+        mAccessibilityDispatcher = new DeckViewAccessibilityDispatcher(getContext(), this);
+        if (mConfig.flatTaskViews) {
+            mTitleCache = new DeckChildViewTitleCache(getContext(), mConfig);
+        }
+        if (mConfig.debugModeEnabled) {
+            setDebugOverlayEnabled(true);
+        }
 
         mUIDozeTrigger = new DozeTrigger(mConfig.taskBarDismissDozeDelaySeconds, new Runnable() {
             @Override
@@ -120,6 +168,22 @@ public class DeckView<T> extends FrameLayout implements /*TaskStack.TaskStackCal
         });
     }
 
+    /**
+     * Enables or disables the fast scroller along the edge of the stack.  Must be called after
+     * {@link #initialize(Callback)}.
+     */
+    public void setFastScrollEnabled(boolean enabled) {
+        if (enabled && mFastScroller == null) {
+            mFastScroller = new DeckViewFastScroller(this, mConfig, mLayoutAlgorithm, mStackScroller);
+        } else if (!enabled && mFastScroller != null) {
+            if (mFastScroller.isScrubbing()) {
+                onFastScrollEnded();
+            }
+            mFastScroller = null;
+        }
+        invalidate();
+    }
+
     /**
      * Resets this TaskStackView for reuse.
      */
@@ -209,57 +273,55 @@ public class DeckView<T> extends FrameLayout implements /*TaskStack.TaskStackCal
     }
 
     /**
-     * Gets the stack transforms of a list of tasks, and returns the visible range of tasks.
+     * Gets the stack transforms of a list of tasks, and returns the visible range of tasks.  Only
+     * the transforms of the visible range are kept in the buffer, and the walk starts from the
+     * front most visible task so that it does not depend on the number of tasks.
      */
-    private boolean updateStackTransforms(ArrayList<DeckChildViewTransform> taskTransforms,
+    private boolean updateStackTransforms(DeckViewTransformBuffer taskTransforms,
                                           ArrayList<T> data,
                                           float stackScroll,
                                           int[] visibleRangeOut,
                                           boolean boundTranslationsToRect) {
-        int taskTransformCount = taskTransforms.size();
         int taskCount = data.size();
         int frontMostVisibleIndex = -1;
         int backMostVisibleIndex = -1;
+        taskTransforms.clear(-1);
+
+        // Skip the tasks below the stack, the one in front of the first task we walk would have
+        // been reset
+        int startIndex = mLayoutAlgorithm.getFrontMostVisibleIndex(taskCount, stackScroll);
+        DeckTransform prevTransform = null;
+        if (startIndex < taskCount - 1) {
+            prevTransform = mTmpStackPrevTransform;
+            prevTransform.reset();
+        }
 
-        // We can reuse the task transforms where possible to reduce object allocation
-        if (taskTransformCount < taskCount) {
-            // If there are less transforms than tasks, then add as many transforms as necessary
-            for (int i = taskTransformCount; i < taskCount; i++) {
-                taskTransforms.add(new DeckChildViewTransform());
+        // Update the stack transforms, the layout only needs the previous task's transform so we
+        // just alternate between two temporary ones
+        DeckTransform transform = mTmpStackTransform;
+        for (int i = startIndex; i >= 0; i--) {
+            mLayoutAlgorithm.getStackTransform(i, stackScroll, transform, prevTransform);
+            if (boundTranslationsToRect) {
+                transform.translationY = Math.min(transform.translationY,
+                        mLayoutAlgorithm.mViewRect.bottom);
             }
-        } else if (taskTransformCount > taskCount) {
-            // If there are more transforms than tasks, then just subset the transform list
-            taskTransforms.subList(0, taskCount);
-        }
 
-        // Update the stack transforms
-        DeckChildViewTransform prevTransform = null;
-        for (int i = taskCount - 1; i >= 0; i--) {
-            DeckChildViewTransform transform =
-                    mLayoutAlgorithm.getStackTransform(data.get(i),
-                            stackScroll, taskTransforms.get(i), prevTransform);
             if (transform.visible) {
                 if (frontMostVisibleIndex < 0) {
                     frontMostVisibleIndex = i;
+                    taskTransforms.clear(i);
                 }
                 backMostVisibleIndex = i;
-            } else {
-                if (backMostVisibleIndex != -1) {
-                    // We've reached the end of the visible range, so going down the rest of the
-                    // stack, we can just reset the transforms accordingly
-                    while (i >= 0) {
-                        taskTransforms.get(i).reset();
-                        i--;
-                    }
-                    break;
-                }
+                taskTransforms.add(transform);
+            } else if (backMostVisibleIndex != -1) {
+                // We've reached the end of the visible range
+                break;
             }
 
-            if (boundTranslationsToRect) {
-                transform.translationY = Math.min(transform.translationY,
-                        mLayoutAlgorithm.mViewRect.bottom);
-            }
+            DeckTransform nextTransform =
+                    (prevTransform != null) ? prevTransform : mTmpStackPrevTransform;
             prevTransform = transform;
+            transform = nextTransform;
         }
         if (visibleRangeOut != null) {
             visibleRangeOut[0] = frontMostVisibleIndex;
@@ -273,42 +335,66 @@ public class DeckView<T> extends FrameLayout implements /*TaskStack.TaskStackCal
      */
     boolean synchronizeStackViewsWithModel() {
         if (mStackViewsDirty) {
+            DVTrace.beginSection("DeckView.synchronizeStackViewsWithModel");
+            DeckViewFrameMetrics metrics = mActiveFrameMetrics;
+            long startNanos = (metrics != null) ? System.nanoTime() : 0;
+
             // Get all the task transforms
             ArrayList<T> data = mCallback.getData();
             float stackScroll = mStackScroller.getStackScroll();
-            int[] visibleRange = mTmpVisibleRange;
+            int[] visibleRange = mVisibleRange;
+            DVTrace.beginSection("DeckView.updateStackTransforms");
             boolean isValidVisibleRange = updateStackTransforms(mCurrentTaskTransforms,
                     data, stackScroll, visibleRange, false);
+            DVTrace.endSection();
+            if (metrics != null) {
+                long nowNanos = System.nanoTime();
+                metrics.transformNanos = nowNanos - startNanos;
+                startNanos = nowNanos;
+            }
 
-            // Return all the invisible children to the pool
-            mTmpTaskViewMap.clear();
+            // Make sure we can index the views of the whole visible range for hit-testing
+            int visibleCount = isValidVisibleRange ? visibleRange[0] - visibleRange[1] + 1 : 0;
+            if (mVisibleTaskViews.length < visibleCount) {
+                mVisibleTaskViews = new DeckChildView[visibleCount];
+            }
+            for (int i = 0; i < visibleCount; i++) {
+                mVisibleTaskViews[i] = null;
+            }
+
+            // Return all the invisible children to the pool, and index the visible ones by their
+            // position in the visible range
             int childCount = getChildCount();
             for (int i = childCount - 1; i >= 0; i--) {
                 @SuppressWarnings("unchecked") DeckChildView<T> tv = (DeckChildView) getChildAt(i);
-                T key = tv.getAttachedKey();
-                int taskIndex = data.indexOf(key);
+                int taskIndex = tv.getAdapterIndex();
 
-                if (visibleRange[1] <= taskIndex
+                if (isValidVisibleRange && visibleRange[1] <= taskIndex
                         && taskIndex <= visibleRange[0]) {
-                    mTmpTaskViewMap.put(key, tv);
+                    mVisibleTaskViews[taskIndex - visibleRange[1]] = tv;
                 } else {
                     mViewPool.returnViewToPool(tv);
+                    if (metrics != null) {
+                        metrics.unbindCount++;
+                    }
                 }
             }
 
             for (int i = visibleRange[0]; isValidVisibleRange && i >= visibleRange[1]; i--) {
                 T key = data.get(i);
-                DeckChildViewTransform transform = mCurrentTaskTransforms.get(i);
-                DeckChildView tv = mTmpTaskViewMap.get(key);
+                DeckChildView tv = mVisibleTaskViews[i - visibleRange[1]];
 
                 if (tv == null) {
                     // TODO Check
-                    tv = mViewPool.pickUpViewFromPool(key, key);
+                    tv = mViewPool.pickUpViewFromPool(key, key, i);
+                    if (metrics != null) {
+                        metrics.bindCount++;
+                    }
 
                     if (mStackViewsAnimationDuration > 0) {
                         // For items in the list, put them in start animating them from the
                         // approriate ends of the list where they are expected to appear
-                        if (Float.compare(transform.p, 0f) <= 0) {
+                        if (Float.compare(mCurrentTaskTransforms.getP(i), 0f) <= 0) {
                             mLayoutAlgorithm.getStackTransform(0f, 0f, mTmpTransform, null);
                         } else {
                             mLayoutAlgorithm.getStackTransform(1f, 0f, mTmpTransform, null);
@@ -317,38 +403,110 @@ public class DeckView<T> extends FrameLayout implements /*TaskStack.TaskStackCal
                     }
                 }
 
+                // Only keep the thumbnails of the front most tasks on low memory devices, while
+                // fast scrolling the thumbnails are left as they are until the user lets go
+                if (!mFastScrolling) {
+                    updateHeaderOnly(tv, key, isHeaderOnlyTask(i));
+                }
+
                 // Animate the task into place
-                tv.updateViewPropertiesToTaskTransform(mCurrentTaskTransforms.get(i),
-                        mStackViewsAnimationDuration, mRequestUpdateClippingListener);
+                tv.updateViewPropertiesToTaskTransform(
+                        mCurrentTaskTransforms.get(i, mTmpTransform), mStackViewsAnimationDuration,
+                        mRequestUpdateClippingListener);
+                mVisibleTaskViews[i - visibleRange[1]] = tv;
+            }
+            for (int i = visibleCount; i < mVisibleTaskViews.length; i++) {
+                mVisibleTaskViews[i] = null;
+            }
+            if (isValidVisibleRange) {
+                prefetchTitles(data, visibleRange);
             }
 
             // Reset the request-synchronize params
             mStackViewsAnimationDuration = 0;
             mStackViewsDirty = false;
             mStackViewsClipDirty = true;
+            if (metrics != null) {
+                metrics.syncNanos = System.nanoTime() - startNanos;
+            }
+            DVTrace.endSection();
             return true;
         }
         return false;
     }
 
+    /**
+     * Returns whether the task at the given index only draws its header bar, on low memory devices
+     * only the front most tasks keep their thumbnails.
+     */
+    boolean isHeaderOnlyTask(int taskIndex) {
+        return mVisibleRange[0] - taskIndex >= mConfig.svelteThumbnailFrontCount;
+    }
+
+    /**
+     * Switches a task view between drawing only its header bar and drawing its thumbnail too, and
+     * reloads its data to get the thumbnail back.
+     */
+    void updateHeaderOnly(DeckChildView<T> tv, T key, boolean headerOnly) {
+        if (tv.isHeaderOnly() == headerOnly) return;
+
+        tv.setHeaderOnly(headerOnly);
+        if (!headerOnly) {
+            loadViewData(tv, key);
+        }
+    }
+
+    /**
+     * Asks the callback to load the data of the task into its view.
+     */
+    void loadViewData(DeckChildView<T> tv, T key) {
+        DVTrace.beginSection("DeckView.loadViewData");
+        mCallback.loadViewData(new WeakReference<>(tv), key);
+        DVTrace.endSection();
+    }
+
+    /**
+     * Lays out the titles of the tasks just outside the visible range in the background, so that
+     * they are ready by the time the tasks are bound to views.
+     */
+    void prefetchTitles(ArrayList<T> data, int[] visibleRange) {
+        if (mTitleCache == null || mTitleProvider == null) return;
+
+        int frontIndex = Math.min(data.size() - 1,
+                visibleRange[0] + mConfig.taskViewTitlePrefetchCount);
+        int backIndex = Math.max(0, visibleRange[1] - mConfig.taskViewTitlePrefetchCount);
+        if (frontIndex == mTitlePrefetchFrontIndex && backIndex == mTitlePrefetchBackIndex) {
+            return;
+        }
+        mTitlePrefetchFrontIndex = frontIndex;
+        mTitlePrefetchBackIndex = backIndex;
+        mTitleCache.beginPrefetch();
+        for (int i = frontIndex; i >= backIndex; i--) {
+            if (i < visibleRange[1] || i > visibleRange[0]) {
+                mTitleCache.prefetch(mTitleProvider.getTitle(data.get(i)));
+            }
+        }
+    }
+
     /**
      * Updates the clip for each of the task views.
      */
     void clipTaskViews() {
-        // Update the clip on each task child
+        if (!mStackViewsClipDirty) return;
 
+        // Update the clip on each task child
+        int culledTaskViewCount = 0;
+        int culledThumbnailCount = 0;
         int childCount = getChildCount();
         for (int i = 0; i < childCount - 1; i++) {
             DeckChildView tv = (DeckChildView) getChildAt(i);
             DeckChildView nextTv = null;
-            DeckChildView tmpTv;
-            //int clipBottom = 0;
+            int visibleHeight = DeckChildView.UnclippedHeight;
             if (tv.shouldClipViewInStack()) {
                 // Find the next view to clip against
-                int nextIndex = i;
-                while (nextIndex < getChildCount()) {
-                    tmpTv = (DeckChildView) getChildAt(++nextIndex);
-                    if (tmpTv != null && tmpTv.shouldClipViewInStack()) {
+                for (int nextIndex = i + 1; nextIndex < childCount; nextIndex++) {
+                    DeckChildView tmpTv = (DeckChildView) getChildAt(nextIndex);
+                    if (tmpTv.shouldClipViewInStack()) {
                         nextTv = tmpTv;
                         break;
                     }
@@ -358,25 +516,90 @@ public class DeckView<T> extends FrameLayout implements /*TaskStack.TaskStackCal
                 // stacked and we can make assumptions about the visibility of the this
                 // task relative to the ones in front of it.
                 if (nextTv != null) {
-                    // Map the top edge of next task view into the local space of the current
-                    // task view to find the clip amount in local space
-                    mTmpCoord[0] = mTmpCoord[1] = 0;
-                    DVUtils.mapCoordInDescendentToSelf(nextTv, this, mTmpCoord, false);
-                    DVUtils.mapCoordInSelfToDescendent(tv, this, mTmpCoord, mTmpMatrix);
-//                        clipBottom = (int) Math.floor(tv.getMeasuredHeight() - mTmpCoord[1]
-//                                - nextTv.getPaddingTop() - 1);
+                    // Find how much of this task is visible above the top edge of the next task,
+                    // in the local space of this task
+                    visibleHeight = (int) Math.floor((getTaskContentTop(nextTv)
+                            - getTaskContentTop(tv)) / tv.getScaleY());
                 }
             }
+            tv.setVisibleContentHeight(visibleHeight);
+            if (tv.isOccludedInStack()) {
+                culledTaskViewCount++;
+            } else if (tv.isThumbnailInvisible()) {
+                culledThumbnailCount++;
+            }
         }
 
-//            if (getChildCount() > 0) {
-//                // The front most task should never be clipped
-//            }
-
+        // The front most task should never be clipped
+        if (childCount > 0) {
+            ((DeckChildView) getChildAt(childCount - 1))
+                    .setVisibleContentHeight(DeckChildView.UnclippedHeight);
+        }
 
+        if (mConfig.debugModeEnabled && (culledTaskViewCount != mCulledTaskViewCount
+                || culledThumbnailCount != mCulledThumbnailCount)) {
+            Log.d(getClass().getSimpleName(), "Culled task views: " + culledTaskViewCount
+                    + ", culled thumbnails: " + culledThumbnailCount + " of " + childCount);
+        }
+        mCulledTaskViewCount = culledTaskViewCount;
+        mCulledThumbnailCount = culledThumbnailCount;
         mStackViewsClipDirty = false;
     }
 
+    /**
+     * Returns the number of task views that are completely hidden behind the tasks in front of
+     * them, and are not drawn.
+     */
+    public int getCulledTaskViewCount() {
+        return mCulledTaskViewCount;
+    }
+
+    /**
+     * Returns the number of task views that only show their header, and do not draw their
+     * thumbnails.
+     */
+    public int getCulledThumbnailCount() {
+        return mCulledThumbnailCount;
+    }
+
+    /**
+     * Returns the number of task views created so far, because the view pool was empty.
+     */
+    public int getCreatedTaskViewCount() {
+        return mViewPool.getCreatedCount();
+    }
+
+    /**
+     * Returns the number of task views reused from the view pool so far.
+     */
+    public int getReusedTaskViewCount() {
+        return mViewPool.getReusedCount();
+    }
+
+    /**
+     * Returns the number of task views discarded so far, because the view pool was full.
+     */
+    public int getDiscardedTaskViewCount() {
+        return mViewPool.getDiscardedCount();
+    }
+
+    /**
+     * Returns the number of task views waiting in the view pool.
+     */
+    public int getPooledTaskViewCount() {
+        return mViewPool.getPoolSize();
+    }
+
+    /**
+     * Returns the top edge of the content of a task view in the stack's coordinates, computed from
+     * the current translation and scale (about the view's pivot) of the view.
+     */
+    static float getTaskContentTop(View tv) {
+        float scale = tv.getScaleY();
+        return tv.getTop() + tv.getTranslationY() + tv.getPivotY() * (1f - scale)
+                + tv.getPaddingTop() * scale;
+    }
+
     /**
      * The stack insets to apply to the stack contents
      */
@@ -384,13 +607,33 @@ public class DeckView<T> extends FrameLayout implements /*TaskStack.TaskStackCal
         mTaskStackBounds.set(r);
     }
 
+    /**
+     * Updates the system insets of this stack, and relayouts it
+     */
+    public void setSystemInsets(Rect insets) {
+        if (!mSystemInsets.equals(insets)) {
+            mSystemInsets.set(insets);
+            requestLayout();
+        }
+    }
+
+    /**
+     * Returns the launch state of this stack
+     */
+    public DeckViewLaunchState getLaunchState() {
+        return mLaunchState;
+    }
+
     /**
      * Updates the min and max virtual scroll bounds
      */
     void updateMinMaxScroll(boolean boundScrollToNewMinMax, boolean launchedWithAltTab,
                             boolean launchedFromHome) {
         // Compute the min and max scroll values
-        mLayoutAlgorithm.computeMinMaxScroll(mCallback.getData(), launchedWithAltTab, launchedFromHome);
+        DVTrace.beginSection("DeckView.computeMinMaxScroll");
+        mLayoutAlgorithm.computeMinMaxScroll(mCallback.getData().size(), launchedWithAltTab,
+                launchedFromHome);
+        DVTrace.endSection();
 
         // Debug logging
         if (boundScrollToNewMinMax) {
@@ -437,9 +680,10 @@ public class DeckView<T> extends FrameLayout implements /*TaskStack.TaskStackCal
 
             // Scroll the view into position (just center it in the curve)
             if (scrollToNewPosition) {
-                float newScroll = mLayoutAlgorithm.getStackScrollForTask(key) - 0.5f;
+                float newScroll = mLayoutAlgorithm.getStackScrollForTask(childIndex) - 0.5f;
                 newScroll = mStackScroller.getBoundedStackScroll(newScroll);
-                mStackScroller.animateScroll(mStackScroller.getStackScroll(), newScroll, postScrollRunnable);
+                mStackScroller.animateLongScroll(mStackScroller.getStackScroll(), newScroll,
+                        postScrollRunnable);
             } else {
                 if (postScrollRunnable != null) {
                     postScrollRunnable.run();
@@ -458,18 +702,10 @@ public class DeckView<T> extends FrameLayout implements /*TaskStack.TaskStackCal
             // of the screen and use that as the currently focused task
             int x = mLayoutAlgorithm.mStackVisibleRect.centerX();
             int y = mLayoutAlgorithm.mStackVisibleRect.centerY();
-            int childCount = getChildCount();
-            for (int i = childCount - 1; i >= 0; i--) {
-                DeckChildView tv = (DeckChildView) getChildAt(i);
-                tv.getHitRect(mTmpRect);
-                if (mTmpRect.contains(x, y)) {
-                    mFocusedTaskIndex = i;
-                    break;
-                }
-            }
-            // If we can't find the center task, then use the front most index
-            if (mFocusedTaskIndex < 0 && childCount > 0) {
-                mFocusedTaskIndex = childCount - 1;
+            mFocusedTaskIndex = findTaskIndexAtPoint(x, y);
+            // If we can't find the center task, then use the front most visible index
+            if (mFocusedTaskIndex < 0) {
+                mFocusedTaskIndex = mVisibleRange[0];
             }
         }
         return mFocusedTaskIndex >= 0;
@@ -511,6 +747,25 @@ public class DeckView<T> extends FrameLayout implements /*TaskStack.TaskStackCal
 //        tv.dismissTask();
 //    }
 
+    /**
+     * Dismisses the task at the specified index, through its view like the dismiss button does if
+     * the task is bound, otherwise by telling the callback straight away.  Returns whether there
+     * was a task to dismiss.
+     */
+    boolean dismissTask(int index) {
+        ArrayList<T> data = mCallback.getData();
+        if (index < 0 || index >= data.size()) return false;
+
+        DeckChildView tv = isTaskIndexVisible(index)
+                ? mVisibleTaskViews[index - mVisibleRange[1]] : null;
+        if (tv != null) {
+            tv.dismissTask();
+        } else {
+            mCallback.onViewDismissed(data.get(index));
+        }
+        return true;
+    }
+
     /**
      * Resets the focused task.
      */
@@ -527,25 +782,52 @@ public class DeckView<T> extends FrameLayout implements /*TaskStack.TaskStackCal
     @Override
     public void onInitializeAccessibilityEvent(AccessibilityEvent event) {
         super.onInitializeAccessibilityEvent(event);
-        int childCount = getChildCount();
-        if (childCount > 0) {
-            @SuppressWarnings("unchecked") DeckChildView<T> backMostTask = (DeckChildView) getChildAt(0);
-            @SuppressWarnings("unchecked") DeckChildView<T> frontMostTask = (DeckChildView) getChildAt(childCount - 1);
-            event.setFromIndex(mCallback.getData().indexOf(backMostTask.getAttachedKey()));
-            event.setToIndex(mCallback.getData().indexOf(frontMostTask.getAttachedKey()));
+        // Report the visible range from the last synchronization rather than looking up the
+        // attached tasks in the data
+        if (mVisibleRange[0] >= 0 && mVisibleRange[1] >= 0) {
+            event.setFromIndex(mVisibleRange[1]);
+            event.setToIndex(mVisibleRange[0]);
         }
         event.setItemCount(mCallback.getData().size());
-        event.setScrollY(mStackScroller.mScroller.getCurrY());
+        event.setScrollY(mStackScroller.progressToScrollRange(mStackScroller.getStackScroll()));
 //        event.setMaxScrollY(mStackScroller.progressToScrollRange(mLayoutAlgorithm.mMaxScrollP));
     }
 
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    @Override
+    public AccessibilityNodeProvider getAccessibilityNodeProvider() {
+        // Expose every item in the stack as a virtual view, instead of only the attached children
+        if (mAccessibilityNodeProvider == null && mCallback != null
+                && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            mAccessibilityNodeProvider = new DeckViewAccessibilityNodeProvider<>(this);
+        }
+        return mAccessibilityNodeProvider;
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    @Override
+    protected boolean dispatchHoverEvent(MotionEvent event) {
+        if (mAccessibilityNodeProvider != null
+                && mAccessibilityDispatcher.isTouchExplorationEnabled()
+                && mAccessibilityNodeProvider.onHoverEvent(event)) {
+            return true;
+        }
+        return super.dispatchHoverEvent(event);
+    }
+
     @Override
     public boolean onInterceptTouchEvent(MotionEvent ev) {
+        if (mFastScroller != null && mFastScroller.onInterceptTouchEvent(ev)) {
+            return true;
+        }
         return mTouchHandler.onInterceptTouchEvent(ev);
     }
 
     @Override
     public boolean onTouchEvent(MotionEvent ev) {
+        if (mFastScroller != null && mFastScroller.isScrubbing()) {
+            return mFastScroller.onTouchEvent(ev);
+        }
         return mTouchHandler.onTouchEvent(ev);
     }
 
@@ -556,14 +838,129 @@ public class DeckView<T> extends FrameLayout implements /*TaskStack.TaskStackCal
 
     @Override
     public void computeScroll() {
-        mStackScroller.computeScroll();
+        // Only time the phases if someone is listening
+        DeckViewFrameMetrics metrics = null;
+        long startNanos = 0;
+        if (mFrameMetricsListener != null) {
+            metrics = mFrameMetrics;
+            metrics.reset();
+            mActiveFrameMetrics = metrics;
+            startNanos = System.nanoTime();
+        }
+
+        boolean scrolled = mStackScroller.computeScroll();
+        if (metrics != null) {
+            metrics.scrollNanos = System.nanoTime() - startNanos;
+        }
 
         // Synchronize the views
-        synchronizeStackViewsWithModel();
+        boolean synced = synchronizeStackViewsWithModel();
+        if (metrics != null) {
+            startNanos = System.nanoTime();
+        }
         clipTaskViews();
+        if (metrics != null) {
+            long nowNanos = System.nanoTime();
+            metrics.clipNanos = nowNanos - startNanos;
+            startNanos = nowNanos;
+        }
+
+        // Notify accessibility, the dispatcher coalesces the events and does nothing if
+        // accessibility is off
+        if (scrolled || synced) {
+            mAccessibilityDispatcher.onScrolled();
+        }
+
+        if (metrics != null) {
+            metrics.accessibilityNanos = System.nanoTime() - startNanos;
+            metrics.visibleCount = (mVisibleRange[0] != -1 && mVisibleRange[1] != -1)
+                    ? mVisibleRange[0] - mVisibleRange[1] + 1 : 0;
+            mActiveFrameMetrics = null;
+            mFrameMetricsListener.onFrameMetrics(metrics);
+        }
+    }
+
+    /**
+     * Sets the listener that is told the time spent in each phase of every frame, or null to stop
+     * timing them.
+     */
+    public void setFrameMetricsListener(FrameMetricsListener listener) {
+        mFrameMetricsListener = listener;
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        getViewTreeObserver().addOnPreDrawListener(this);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        getViewTreeObserver().removeOnPreDrawListener(this);
+        mImpostorPool.clear();
+        if (mAccessibilityDispatcher != null) {
+            mAccessibilityDispatcher.cancel();
+        }
+    }
+
+    /**
+     * Retakes the stale impostor snapshots of the task views before the frame is drawn, rather
+     * than while drawing it.
+     */
+    @Override
+    public boolean onPreDraw() {
+        int childCount = getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            ((DeckChildView) getChildAt(i)).updateImpostor();
+        }
+        return true;
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        super.dispatchDraw(canvas);
+        if (mFastScroller != null) {
+            mFastScroller.draw(canvas);
+        }
+        if (BuildConfig.DECK_DEBUG_OVERLAY && mDebugOverlay != null) {
+            mDebugOverlay.draw(canvas);
+        }
+    }
+
+    /**
+     * Shows or hides the debug overlay over the stack.  Does nothing in builds without the
+     * DECK_DEBUG_OVERLAY flag, which are all release builds.  Must be called after
+     * {@link #initialize(Callback)}.
+     */
+    public void setDebugOverlayEnabled(boolean enabled) {
+        if (!BuildConfig.DECK_DEBUG_OVERLAY) return;
+
+        if (enabled && mDebugOverlay == null) {
+            mDebugOverlay = new DeckViewDebugOverlay(this);
+        } else if (!enabled) {
+            mDebugOverlay = null;
+        }
+        invalidate();
+    }
 
-        // Notify accessibility
-        sendAccessibilityEvent(AccessibilityEvent.TYPE_VIEW_SCROLLED);
+    /**
+     * Called when the user starts dragging the fast scroller, the tasks are still bound as the
+     * stack scrolls but only get their headers, so that no thumbnails are loaded for the tasks
+     * that are scrubbed past.
+     */
+    void onFastScrollStarted() {
+        mFastScrolling = true;
+    }
+
+    /**
+     * Called when the user lets go of the fast scroller, loads the thumbnails of the tasks where
+     * the stack was scrubbed to.
+     */
+    void onFastScrollEnded() {
+        mFastScrolling = false;
+        requestSynchronizeStackViewsWithModel();
+        synchronizeStackViewsWithModel();
     }
 
     /**
@@ -585,7 +982,7 @@ public class DeckView<T> extends FrameLayout implements /*TaskStack.TaskStackCal
         @SuppressWarnings("unchecked") DeckChildView<T> frontMostChild = (DeckChildView) getChildAt(getChildCount() / 2);
 
         if (frontMostChild != null) {
-            return mCallback.getData().indexOf(frontMostChild.getAttachedKey());
+            return frontMostChild.getAdapterIndex();
         }
 
         return -1;
@@ -595,17 +992,27 @@ public class DeckView<T> extends FrameLayout implements /*TaskStack.TaskStackCal
      * Focuses the task at the specified index in the stack
      */
     public void scrollToChild(int childIndex) {
+        scrollToChild(childIndex, false);
+    }
+
+    /**
+     * Scrolls the task at the specified index into the center of the stack.  When animating to a
+     * task that is far away, the stack jumps to within a screenful of the task and only animates
+     * the rest of the way, so the tasks in between are never bound.
+     */
+    public void scrollToChild(int childIndex, boolean animate) {
         if (getCurrentChildIndex() == childIndex)
             return;
 
         if (0 <= childIndex && childIndex < mCallback.getData().size()) {
             // Scroll the view into position (just center it in the curve)
-            float newScroll = mLayoutAlgorithm.getStackScrollForTask(
-                    mCallback.getData().get(childIndex)) - 0.5f;
+            float newScroll = mLayoutAlgorithm.getStackScrollForTask(childIndex) - 0.5f;
             newScroll = mStackScroller.getBoundedStackScroll(newScroll);
-            mStackScroller.setStackScroll(newScroll);
-            //Alternate (animated) way
-            //mStackScroller.animateScroll(mStackScroller.getStackScroll(), newScroll, null);
+            if (animate) {
+                mStackScroller.animateLongScroll(mStackScroller.getStackScroll(), newScroll, null);
+            } else {
+                mStackScroller.setStackScroll(newScroll);
+            }
         }
     }
 
@@ -621,23 +1028,27 @@ public class DeckView<T> extends FrameLayout implements /*TaskStack.TaskStackCal
      * This is called with the full window width and height to allow stack view children to
      * perform the full screen transition down.
      */
-    @SuppressLint("DrawAllocation")
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
         int width = MeasureSpec.getSize(widthMeasureSpec);
         int height = MeasureSpec.getSize(heightMeasureSpec);
 
-        Rect _taskStackBounds = new Rect();
-        mConfig.getTaskStackBounds(width, height, mConfig.systemInsets.top,
-                mConfig.systemInsets.right, _taskStackBounds);
-
-        setStackInsetRect(_taskStackBounds);
-
-        // Compute our stack/task rects
-        Rect taskStackBounds = new Rect(mTaskStackBounds);
-        taskStackBounds.bottom -= mConfig.systemInsets.bottom;
-        computeRects(width, height, taskStackBounds, mConfig.launchedWithAltTab,
-                mConfig.launchedFromHome);
+        mConfig.getTaskStackBounds(width, height, mSystemInsets.top, mSystemInsets.right,
+                mTmpRect);
+        setStackInsetRect(mTmpRect);
+
+        // Compute our stack/task rects, but only if the size or the insets have changed since
+        // this walks all of the tasks to recompute the scroll bounds
+        Rect taskStackBounds = mTmpRect;
+        taskStackBounds.bottom -= mSystemInsets.bottom;
+        if (mAwaitingFirstLayout || width != mLastMeasuredWidth || height != mLastMeasuredHeight
+                || !taskStackBounds.equals(mLastTaskStackBounds)) {
+            computeRects(width, height, taskStackBounds, mLaunchState.launchedWithAltTab,
+                    mLaunchState.launchedFromHome);
+            mLastMeasuredWidth = width;
+            mLastMeasuredHeight = height;
+            mLastTaskStackBounds.set(taskStackBounds);
+        }
 
         // If this is the first layout, then scroll to the front of the stack and synchronize the
         // stack views immediately to load all the views
@@ -647,7 +1058,8 @@ public class DeckView<T> extends FrameLayout implements /*TaskStack.TaskStackCal
             synchronizeStackViewsWithModel();
         }
 
-        // Measure each of the TaskViews
+        // Measure each of the TaskViews, skipping the ones that are already measured at the task
+        // size and have not requested a layout since
         int childCount = getChildCount();
         for (int i = 0; i < childCount; i++) {
             DeckChildView tv = (DeckChildView) getChildAt(i);
@@ -656,13 +1068,15 @@ public class DeckView<T> extends FrameLayout implements /*TaskStack.TaskStackCal
             } else {
                 mTmpRect.setEmpty();
             }
+            int childWidth = mLayoutAlgorithm.mTaskRect.width() + mTmpRect.left + mTmpRect.right;
+            int childHeight = mLayoutAlgorithm.mTaskRect.height() + mTmpRect.top + mTmpRect.bottom;
+            if (!tv.isLayoutRequested() && tv.getMeasuredWidth() == childWidth
+                    && tv.getMeasuredHeight() == childHeight) {
+                continue;
+            }
             tv.measure(
-                    MeasureSpec.makeMeasureSpec(
-                            mLayoutAlgorithm.mTaskRect.width() + mTmpRect.left + mTmpRect.right,
-                            MeasureSpec.EXACTLY),
-                    MeasureSpec.makeMeasureSpec(
-                            mLayoutAlgorithm.mTaskRect.height() + mTmpRect.top + mTmpRect.bottom,
-                            MeasureSpec.EXACTLY));
+                    MeasureSpec.makeMeasureSpec(childWidth, MeasureSpec.EXACTLY),
+                    MeasureSpec.makeMeasureSpec(childHeight, MeasureSpec.EXACTLY));
         }
 
         setMeasuredDimension(width, height);
@@ -675,7 +1089,8 @@ public class DeckView<T> extends FrameLayout implements /*TaskStack.TaskStackCal
      */
     @Override
     protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
-        // Layout each of the children
+        // Layout each of the children, skipping the ones that are already in place and have not
+        // requested a layout since
         int childCount = getChildCount();
         for (int i = 0; i < childCount; i++) {
             DeckChildView tv = (DeckChildView) getChildAt(i);
@@ -684,10 +1099,15 @@ public class DeckView<T> extends FrameLayout implements /*TaskStack.TaskStackCal
             } else {
                 mTmpRect.setEmpty();
             }
-            tv.layout(mLayoutAlgorithm.mTaskRect.left - mTmpRect.left,
-                    mLayoutAlgorithm.mTaskRect.top - mTmpRect.top,
-                    mLayoutAlgorithm.mTaskRect.right + mTmpRect.right,
-                    mLayoutAlgorithm.mTaskRect.bottom + mTmpRect.bottom);
+            int childLeft = mLayoutAlgorithm.mTaskRect.left - mTmpRect.left;
+            int childTop = mLayoutAlgorithm.mTaskRect.top - mTmpRect.top;
+            int childRight = mLayoutAlgorithm.mTaskRect.right + mTmpRect.right;
+            int childBottom = mLayoutAlgorithm.mTaskRect.bottom + mTmpRect.bottom;
+            if (!tv.isLayoutRequested() && tv.getLeft() == childLeft && tv.getTop() == childTop
+                    && tv.getRight() == childRight && tv.getBottom() == childBottom) {
+                continue;
+            }
+            tv.layout(childLeft, childTop, childRight, childBottom);
         }
 
         if (mAwaitingFirstLayout) {
@@ -722,13 +1142,13 @@ public class DeckView<T> extends FrameLayout implements /*TaskStack.TaskStackCal
 
         // When Alt-Tabbing, focus the previous task (but leave the animation until we finish the
         // enter animation).
-        if (mConfig.launchedWithAltTab) {
-            if (mConfig.launchedFromAppWithThumbnail) {
+        if (mLaunchState.launchedWithAltTab) {
+            if (mLaunchState.launchedFromAppWithThumbnail) {
                 focusTask(Math.max(0, mCallback.getData().size() - 2), false,
-                        mConfig.launchedHasConfigurationChanged);
+                        mLaunchState.launchedHasConfigurationChanged);
             } else {
                 focusTask(Math.max(0, mCallback.getData().size() - 1), false,
-                        mConfig.launchedHasConfigurationChanged);
+                        mLaunchState.launchedHasConfigurationChanged);
             }
         }
 
@@ -765,7 +1185,6 @@ public class DeckView<T> extends FrameLayout implements /*TaskStack.TaskStackCal
             // Animate all the task views into view
             for (int i = childCount - 1; i >= 0; i--) {
                 @SuppressWarnings("unchecked") DeckChildView<T> tv = (DeckChildView) getChildAt(i);
-                T key = tv.getAttachedKey();
                 ctx.currentTaskTransform = new DeckChildViewTransform();
                 ctx.currentStackViewIndex = i;
                 ctx.currentStackViewCount = childCount;
@@ -773,7 +1192,8 @@ public class DeckView<T> extends FrameLayout implements /*TaskStack.TaskStackCal
                 // TODO: this needs to go
                 ctx.currentTaskOccludesLaunchTarget = false;
                 ctx.updateListener = mRequestUpdateClippingListener;
-                mLayoutAlgorithm.getStackTransform(key, mStackScroller.getStackScroll(),
+                mLayoutAlgorithm.getStackTransform(tv.getAdapterIndex(),
+                        mStackScroller.getStackScroll(),
                         ctx.currentTaskTransform, null);
                 tv.startEnterRecentsAnimation(ctx);
             }
@@ -793,8 +1213,8 @@ public class DeckView<T> extends FrameLayout implements /*TaskStack.TaskStackCal
 //    @Override
 //    public WindowInsets onApplyWindowInsets(WindowInsets insets) {
 //        // Update the configuration with the latest system insets and trigger a relayout
-//        // mConfig.updateSystemInsets(insets.getSystemWindowInsets());
-//        mConfig.updateSystemInsets(new Rect(insets.getSystemWindowInsetLeft(),
+//        // setSystemInsets(insets.getSystemWindowInsets());
+//        setSystemInsets(new Rect(insets.getSystemWindowInsetLeft(),
 //                insets.getSystemWindowInsetTop(),
 //                insets.getSystemWindowInsetRight(),
 //                insets.getSystemWindowInsetBottom()));
@@ -855,15 +1275,134 @@ public class DeckView<T> extends FrameLayout implements /*TaskStack.TaskStackCal
 //        reset();
 //    }
 
-    public boolean isTransformedTouchPointInView(float x, float y, View child) {
-        // TODO: confirm if this is the right approach
-        if (child == null)
+    /**
+     * Returns whether the task at the specified index was visible in the last synchronization.
+     */
+    boolean isTaskIndexVisible(int index) {
+        return mVisibleRange[1] >= 0 && mVisibleRange[1] <= index && index <= mVisibleRange[0];
+    }
+
+    /**
+     * Returns the accessibility description of the task at the specified index, falling back to
+     * the title of the bound view, or the item itself if it has no bound view.
+     */
+    CharSequence getItemDescription(int index, T item) {
+        if (mItemDescriptionProvider != null) {
+            return mItemDescriptionProvider.getItemDescription(item);
+        }
+        if (isTaskIndexVisible(index)) {
+            DeckChildView tv = mVisibleTaskViews[index - mVisibleRange[1]];
+            if (tv != null && tv.getTitle() != null) {
+                return tv.getTitle();
+            }
+        }
+        return String.valueOf(item);
+    }
+
+    /**
+     * Sets the provider used to describe items to accessibility services.
+     */
+    public void setItemDescriptionProvider(ItemDescriptionProvider<T> provider) {
+        mItemDescriptionProvider = provider;
+    }
+
+    /**
+     * Sets the provider of the item titles, used to lay out the titles ahead of the visible
+     * range when flat task views are enabled.
+     */
+    public void setTitleProvider(TitleProvider<T> provider) {
+        mTitleProvider = provider;
+    }
+
+    /**
+     * Returns the front most task view at the specified coordinates.  The views are hit-tested
+     * where they are currently drawn, with their translation and scale, rather than where the last
+     * synchronization put them, since they may still be animating there.  Only the views of the
+     * visible range are walked, from the front.
+     */
+    DeckChildView findChildViewAtPoint(int x, int y) {
+        int frontMostIndex = mVisibleRange[0];
+        int backMostIndex = mVisibleRange[1];
+        if (frontMostIndex < 0 || backMostIndex < 0) {
+            return null;
+        }
+
+        ArrayList<T> data = mCallback.getData();
+        for (int i = Math.min(frontMostIndex, data.size() - 1); i >= backMostIndex; i--) {
+            DeckChildView tv = mVisibleTaskViews[i - backMostIndex];
+            // Skip the views that were returned to the pool, and maybe bound to another task,
+            // since the last synchronization
+            if (tv == null || tv.getParent() != this || tv.getVisibility() != View.VISIBLE
+                    || !data.get(i).equals(tv.getAttachedKey())) {
+                continue;
+            }
+            if (isPointInChildView(x, y, tv)) {
+                return tv;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns whether the point is within the child where it is currently drawn, with its
+     * translation and its scale around its pivot.
+     */
+    static boolean isPointInChildView(float x, float y, View child) {
+        float scaleX = child.getScaleX();
+        float scaleY = child.getScaleY();
+        if (scaleX == 0f || scaleY == 0f) {
             return false;
+        }
+        float pivotX = child.getPivotX();
+        float pivotY = child.getPivotY();
+        float localX = pivotX + (x - child.getLeft() - child.getTranslationX() - pivotX) / scaleX;
+        float localY = pivotY + (y - child.getTop() - child.getTranslationY() - pivotY) / scaleY;
+        return 0 <= localX && localX < child.getWidth() && 0 <= localY
+                && localY < child.getHeight();
+    }
 
-        final Rect frame = new Rect();
-        child.getHitRect(frame);
+    /**
+     * Returns the index of the front most task at the specified coordinates, using the task
+     * transforms computed in the last synchronization instead of walking every child.  The
+     * transform rects of the visible range are sorted by their top edge (back to front), so we
+     * binary search for the front most task whose top is above the point, and then only walk back
+     * while the point is still above the bottom of the stack.  Whether or not the task is bound,
+     * see findChildViewAtPoint() for the bound views.
+     */
+    int findTaskIndexAtPoint(int x, int y) {
+        DeckViewTransformBuffer transforms = mCurrentTaskTransforms;
+        int frontMostIndex = mVisibleRange[0];
+        int backMostIndex = mVisibleRange[1];
+        if (frontMostIndex < 0 || backMostIndex < 0
+                || !transforms.contains(frontMostIndex) || !transforms.contains(backMostIndex)) {
+            return -1;
+        }
 
-        return frame.contains((int) x, (int) y);
+        // Find the front most task whose top edge is at or above the point
+        int lo = backMostIndex;
+        int hi = frontMostIndex;
+        int index = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (transforms.getTop(mid) <= y) {
+                index = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+
+        // The bottom edges are sorted the same way, so once a task ends above the point, all the
+        // tasks behind it do as well
+        for (int i = index; i >= backMostIndex; i--) {
+            if (transforms.getBottom(i) <= y) {
+                break;
+            }
+            if (transforms.getLeft(i) <= x && x < transforms.getRight(i)) {
+                return i;
+            }
+        }
+        return -1;
     }
 
     /**
@@ -881,7 +1420,20 @@ public class DeckView<T> extends FrameLayout implements /*TaskStack.TaskStackCal
     @SuppressWarnings("unchecked")
     @Override
     public DeckChildView createView(Context context) {
-        return (DeckChildView) mInflater.inflate(R.layout.deck_child_view, this, false);
+        DVTrace.beginSection("DeckView.createView");
+        DeckChildView tv;
+        if (mConfig.flatTaskViews) {
+            DeckFlatChildView dcv = (DeckFlatChildView) mInflater.inflate(
+                    R.layout.deck_flat_child_view, this, false);
+            dcv.mTitleCache = mTitleCache;
+            tv = dcv;
+        } else {
+            tv = (DeckChildView) mInflater.inflate(R.layout.deck_child_view, this, false);
+        }
+        tv.mLaunchState = mLaunchState;
+        tv.mImpostorPool = mImpostorPool;
+        DVTrace.endSection();
+        return tv;
     }
 
     @Override
@@ -891,6 +1443,7 @@ public class DeckView<T> extends FrameLayout implements /*TaskStack.TaskStackCal
         mCallback.unloadViewData(key);
         tv.onTaskUnbound();
         tv.onDataUnloaded();
+        tv.setHeaderOnly(false);
 
         // Detach the view from the hierarchy
         detachViewFromParent(tv);
@@ -903,16 +1456,21 @@ public class DeckView<T> extends FrameLayout implements /*TaskStack.TaskStackCal
     }
 
     @Override
-    public void prepareViewToLeavePool(DeckChildView<T> dcv, T key, boolean isNewView) {
+    public void prepareViewToLeavePool(DeckChildView<T> dcv, T key, int position,
+                                       boolean isNewView) {
         // It is possible for a view to be returned to the view pool before it is laid out,
         // which means that we will need to relayout the view when it is first used next.
         boolean requiresRelayout = dcv.getWidth() <= 0 && !isNewView;
 
         // Rebind the task and request that this task's data be filled into the TaskView
         dcv.onTaskBound(key);
+        dcv.setAdapterIndex(position);
+
+        // Set the header only state before loading, so that the data can skip the thumbnail
+        dcv.setHeaderOnly(mFastScrolling || (position != -1 && isHeaderOnlyTask(position)));
 
         // Load the task data
-        mCallback.loadViewData(new WeakReference<>(dcv), key);
+        loadViewData(dcv, key);
 
         // If the doze trigger has already fired, then update the state for this task view
         if (mUIDozeTrigger.hasTriggered()) {
@@ -926,12 +1484,10 @@ public class DeckView<T> extends FrameLayout implements /*TaskStack.TaskStackCal
 
         // Find the index where this task should be placed in the stack
         int insertIndex = -1;
-        int position = mCallback.getData().indexOf(key);
         if (position != -1) {
             int childCount = getChildCount();
             for (int i = 0; i < childCount; i++) {
-                @SuppressWarnings("unchecked") T otherKey = ((DeckChildView<T>) getChildAt(i)).getAttachedKey();
-                int pos = mCallback.getData().indexOf(otherKey);
+                int pos = ((DeckChildView) getChildAt(i)).getAdapterIndex();
                 if (position < pos) {
                     insertIndex = i;
                     break;
@@ -961,6 +1517,12 @@ public class DeckView<T> extends FrameLayout implements /*TaskStack.TaskStackCal
         return (tv.getAttachedKey() != null && tv.getAttachedKey().equals(preferredData));
     }
 
+    @Override
+    public void discardView(DeckChildView<T> tv) {
+        // The view was detached when it entered the pool, finish removing it
+        removeDetachedView(tv, false);
+    }
+
     /**
      * * DeckChildCallbacks Implementation ***
      */
@@ -980,8 +1542,7 @@ public class DeckView<T> extends FrameLayout implements /*TaskStack.TaskStackCal
     public void onDeckChildViewDismissed(DeckChildView<T> dcv) {
         boolean taskWasFocused = dcv.isFocusedTask();
 
-        T key = dcv.getAttachedKey();
-        int taskIndex = mCallback.getData().indexOf(key);
+        int taskIndex = dcv.getAdapterIndex();
 
         onStackTaskRemoved(dcv);
 
@@ -993,7 +1554,7 @@ public class DeckView<T> extends FrameLayout implements /*TaskStack.TaskStackCal
                 if (nextTv != null) {
                     // Focus the next task, and only animate the visible state if we are launched
                     // from Alt-Tab
-                    nextTv.setFocusedTask(mConfig.launchedWithAltTab);
+                    nextTv.setFocusedTask(mLaunchState.launchedWithAltTab);
                 }
             }
         }
@@ -1023,7 +1584,7 @@ public class DeckView<T> extends FrameLayout implements /*TaskStack.TaskStackCal
         }
 
         // Update the min/max scroll and animate other task views into their new positions
-        updateMinMaxScroll(true, mConfig.launchedWithAltTab, mConfig.launchedFromHome);
+        updateMinMaxScroll(true, mLaunchState.launchedWithAltTab, mLaunchState.launchedFromHome);
 
         // Offset the stack by as much as the anchor task would otherwise move back
         if (pullStackForward) {
@@ -1052,23 +1613,91 @@ public class DeckView<T> extends FrameLayout implements /*TaskStack.TaskStackCal
         */
     }
 
+    /**
+     * Tells the stack that the data changed in an unknown way.  Each bound view looks up the new
+     * position of its task in the data, so prefer {@link #notifyItemInserted(int)} and
+     * {@link #notifyItemRemoved(int)} when only one item changed.
+     */
     public void notifyDataSetChanged() {
+        ArrayList<T> data = mCallback.getData();
+
+        // The front most task is the anchor, we can tell where it was before the change if it is
+        // bound, otherwise it is assumed not to have moved
+        int anchorIndex = data.size() - 1;
+        T anchorTask = anchorIndex >= 0 ? data.get(anchorIndex) : null;
+        int prevAnchorIndex = anchorIndex;
+        int childCount = getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            @SuppressWarnings("unchecked") DeckChildView<T> tv = (DeckChildView) getChildAt(i);
+            T key = tv.getAttachedKey();
+            if (key.equals(anchorTask)) {
+                prevAnchorIndex = tv.getAdapterIndex();
+            }
+            tv.setAdapterIndex(data.indexOf(key));
+        }
+
+        onDataChanged(anchorIndex, prevAnchorIndex);
+    }
+
+    /**
+     * Tells the stack that an item was inserted into the data at the given position.
+     */
+    public void notifyItemInserted(int position) {
+        // Shift the positions of the tasks behind the new one
+        int childCount = getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            DeckChildView tv = (DeckChildView) getChildAt(i);
+            if (tv.getAdapterIndex() >= position) {
+                tv.setAdapterIndex(tv.getAdapterIndex() + 1);
+            }
+        }
+
+        // The anchor was not in the data before if it is the new item
+        int anchorIndex = mCallback.getData().size() - 1;
+        onDataChanged(anchorIndex, position == anchorIndex ? -1 : anchorIndex - 1);
+    }
+
+    /**
+     * Tells the stack that the item at the given position was removed from the data.
+     */
+    public void notifyItemRemoved(int position) {
+        // Shift the positions of the tasks behind the removed one, the view of the removed task
+        // is returned to the pool on the next synchronization
+        int childCount = getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            DeckChildView tv = (DeckChildView) getChildAt(i);
+            int index = tv.getAdapterIndex();
+            if (index == position) {
+                tv.setAdapterIndex(-1);
+            } else if (index > position) {
+                tv.setAdapterIndex(index - 1);
+            }
+        }
+
+        int anchorIndex = mCallback.getData().size() - 1;
+        onDataChanged(anchorIndex, position <= anchorIndex ? anchorIndex + 1 : anchorIndex);
+    }
+
+    /**
+     * Updates the stack after the data changed, once the views know the new positions of their
+     * tasks.  The stack is offset to keep the front most task, the anchor, in place, given its
+     * position before the change, or -1 if it was not in the data.
+     */
+    void onDataChanged(int anchorIndex, int prevAnchorIndex) {
         // Get the stack scroll of the task to anchor to (since we are removing something, the front
         // most task will be our anchor task)
-        T anchorTask = null;
         float prevAnchorTaskScroll = 0;
-        boolean pullStackForward = mCallback.getData().size() > 0;
+        boolean pullStackForward = anchorIndex >= 0;
         if (pullStackForward) {
-            anchorTask = mCallback.getData().get(mCallback.getData().size() - 1);
-            prevAnchorTaskScroll = mLayoutAlgorithm.getStackScrollForTask(anchorTask);
+            prevAnchorTaskScroll = mLayoutAlgorithm.getStackScrollForTask(prevAnchorIndex);
         }
 
         // Update the min/max scroll and animate other task views into their new positions
-        updateMinMaxScroll(true, mConfig.launchedWithAltTab, mConfig.launchedFromHome);
+        updateMinMaxScroll(true, mLaunchState.launchedWithAltTab, mLaunchState.launchedFromHome);
 
         // Offset the stack by as much as the anchor task would otherwise move back
         if (pullStackForward) {
-            float anchorTaskScroll = mLayoutAlgorithm.getStackScrollForTask(anchorTask);
+            float anchorTaskScroll = mLayoutAlgorithm.getStackScrollForTask(anchorIndex);
             mStackScroller.setStackScroll(mStackScroller.getStackScroll() + (anchorTaskScroll
                     - prevAnchorTaskScroll));
             mStackScroller.boundScroll();
@@ -1088,6 +1717,9 @@ public class DeckView<T> extends FrameLayout implements /*TaskStack.TaskStackCal
             }
         }
 
+        // The virtual accessibility views are indexed by position, so they all need refreshing
+        mAccessibilityDispatcher.onContentChanged();
+
         // If there are no remaining tasks
         if (mCallback.getData().size() == 0) {
             mCallback.onNoViewsToDeck();
@@ -1096,15 +1728,13 @@ public class DeckView<T> extends FrameLayout implements /*TaskStack.TaskStackCal
 
     @Override
     public void onDeckChildViewClipStateChanged(DeckChildView tv) {
-        if (!mStackViewsDirty) {
-            invalidate();
-        }
+        requestUpdateStackViewsClip();
     }
 
     @Override
     public void onDeckChildViewFocusChanged(DeckChildView<T> tv, boolean focused) {
         if (focused) {
-            mFocusedTaskIndex = mCallback.getData().indexOf(tv.getAttachedKey());
+            mFocusedTaskIndex = tv.getAdapterIndex();
         }
     }
 
@@ -1133,7 +1763,7 @@ public class DeckView<T> extends FrameLayout implements /*TaskStack.TaskStackCal
 //        }
 //
 //        // Update the min/max scroll and animate other task views into their new positions
-//        updateMinMaxScroll(true, mConfig.launchedWithAltTab, mConfig.launchedFromHome);
+//        updateMinMaxScroll(true, mLaunchState.launchedWithAltTab, mLaunchState.launchedFromHome);
 //
 //        // Offset the stack by as much as the anchor task would otherwise move back
 //        if (pullStackForward) {
@@ -1161,6 +1791,9 @@ public class DeckView<T> extends FrameLayout implements /*TaskStack.TaskStackCal
 //    }
 
     Callback<T> mCallback;
+    ItemDescriptionProvider<T> mItemDescriptionProvider;
+    TitleProvider<T> mTitleProvider;
+    FrameMetricsListener mFrameMetricsListener;
 
     public interface Callback<T> {
         ArrayList<T> getData();
@@ -1170,4 +1803,27 @@ public class DeckView<T> extends FrameLayout implements /*TaskStack.TaskStackCal
         void onItemClick(T item);
         void onNoViewsToDeck();
     }
+
+    /**
+     * Describes the items in the stack to accessibility services, including the items that do not
+     * currently have a view bound to them.
+     */
+    public interface ItemDescriptionProvider<T> {
+        CharSequence getItemDescription(T item);
+    }
+
+    /**
+     * Provides the titles that will be passed to DeckChildView.onDataLoaded() for the items in
+     * the stack, before they are bound to views.
+     */
+    public interface TitleProvider<T> {
+        String getTitle(T item);
+    }
+
+    /**
+     * Told the time spent in each phase of computeScroll(), once per frame.
+     */
+    public interface FrameMetricsListener {
+        void onFrameMetrics(DeckViewFrameMetrics metrics);
+    }
 }
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2016 Zheng Li <https://lizheng.me>
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.lizheng.deckview.views;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.view.View;
+import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityManager;
+
+/**
+ * Coalesces the scroll accessibility events of a view, so that at most one event is sent per
+ * interval however often the view scrolls, and no work is done at all if accessibility is off.
+ */
+public class DeckViewAccessibilityDispatcher {
+
+    // The platform's interval between recurring accessibility events (see
+    // ViewConfiguration.SEND_RECURRING_ACCESSIBILITY_EVENTS_INTERVAL_MILLIS)
+    static final long SendRecurringEventsIntervalMs = 100;
+
+    View mView;
+    AccessibilityManager mAccessibilityManager;
+
+    boolean mIsScrolledEventPending;
+    long mLastScrolledEventTime;
+
+    // Sends the pending scrolled event
+    Runnable mSendScrolledEventRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mIsScrolledEventPending = false;
+            mLastScrolledEventTime = SystemClock.uptimeMillis();
+            mView.sendAccessibilityEvent(AccessibilityEvent.TYPE_VIEW_SCROLLED);
+        }
+    };
+
+    public DeckViewAccessibilityDispatcher(Context context, View view) {
+        mView = view;
+        mAccessibilityManager =
+                (AccessibilityManager) context.getSystemService(Context.ACCESSIBILITY_SERVICE);
+    }
+
+    /**
+     * Returns whether any accessibility service is enabled.
+     */
+    public boolean isEnabled() {
+        return mAccessibilityManager != null && mAccessibilityManager.isEnabled();
+    }
+
+    /**
+     * Returns whether touch exploration is enabled.
+     */
+    public boolean isTouchExplorationEnabled() {
+        return isEnabled() && mAccessibilityManager.isTouchExplorationEnabled();
+    }
+
+    /**
+     * Notifies that the content of the view changed.
+     */
+    public void onContentChanged() {
+        if (!isEnabled()) return;
+
+        mView.sendAccessibilityEvent(AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED);
+    }
+
+    /**
+     * Notifies that the view scrolled, the scrolled event is sent once the interval since the last
+     * one has elapsed.
+     */
+    public void onScrolled() {
+        if (mIsScrolledEventPending || !isEnabled()) return;
+
+        mIsScrolledEventPending = true;
+        long delay = SendRecurringEventsIntervalMs
+                - (SystemClock.uptimeMillis() - mLastScrolledEventTime);
+        mView.postDelayed(mSendScrolledEventRunnable, Math.max(0, delay));
+    }
+
+    /**
+     * Cancels any pending scrolled event.
+     */
+    public void cancel() {
+        if (mIsScrolledEventPending) {
+            mView.removeCallbacks(mSendScrolledEventRunnable);
+            mIsScrolledEventPending = false;
+        }
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright (C) 2016 Zheng Li <https://lizheng.me>
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.lizheng.deckview.views;
+
+import android.annotation.TargetApi;
+import android.graphics.Rect;
+import android.os.Build;
+import android.os.Bundle;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewParent;
+import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityNodeInfo;
+import android.view.accessibility.AccessibilityNodeProvider;
+
+import java.util.ArrayList;
+
+import me.lizheng.deckview.helpers.DeckChildViewTransform;
+
+/**
+ * Exposes the items of a DeckView to accessibility services as virtual views, whether or not a
+ * DeckChildView is currently bound to them.  The virtual view ids are the item indices, and the
+ * nodes are only built when requested, with bounds computed from the layout algorithm.  The host
+ * only lists the items around the visible range as children, the rest of the stack is reached
+ * through the scroll actions.
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+public class DeckViewAccessibilityNodeProvider<T> extends AccessibilityNodeProvider {
+
+    static final int HostViewId = View.NO_ID;
+    // The number of items on each side of the visible range that are listed as children
+    static final int OffscreenChildCount = 3;
+
+    DeckView<T> mDeckView;
+    int mAccessibilityFocusedIndex = -1;
+    int mHoveredIndex = -1;
+
+    // Optimizations
+    DeckChildViewTransform mTmpTransform = new DeckChildViewTransform();
+    Rect mTmpRect = new Rect();
+    int[] mTmpLocation = new int[2];
+
+    public DeckViewAccessibilityNodeProvider(DeckView<T> dv) {
+        mDeckView = dv;
+    }
+
+    @Override
+    public AccessibilityNodeInfo createAccessibilityNodeInfo(int virtualViewId) {
+        if (virtualViewId == HostViewId) {
+            return createHostNodeInfo();
+        }
+
+        ArrayList<T> data = mDeckView.mCallback.getData();
+        if (virtualViewId < 0 || virtualViewId >= data.size()) {
+            return null;
+        }
+        return createItemNodeInfo(virtualViewId, data.get(virtualViewId));
+    }
+
+    /**
+     * Creates the node for the stack itself, with the items in and around the visible range as
+     * virtual children.
+     */
+    AccessibilityNodeInfo createHostNodeInfo() {
+        AccessibilityNodeInfo info = AccessibilityNodeInfo.obtain(mDeckView);
+        mDeckView.onInitializeAccessibilityNodeInfo(info);
+
+        int itemCount = mDeckView.mCallback.getData().size();
+        int[] visibleRange = mDeckView.mVisibleRange;
+        if (visibleRange[0] >= 0 && visibleRange[1] >= 0) {
+            int backIndex = Math.max(0, visibleRange[1] - OffscreenChildCount);
+            int frontIndex = Math.min(itemCount - 1, visibleRange[0] + OffscreenChildCount);
+            for (int i = backIndex; i <= frontIndex; i++) {
+                info.addChild(mDeckView, i);
+            }
+            // Keep the focused item reachable while it scrolls into view
+            if (mAccessibilityFocusedIndex >= 0 && mAccessibilityFocusedIndex < itemCount
+                    && (mAccessibilityFocusedIndex < backIndex
+                    || mAccessibilityFocusedIndex > frontIndex)) {
+                info.addChild(mDeckView, mAccessibilityFocusedIndex);
+            }
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            info.setCollectionInfo(
+                    AccessibilityNodeInfo.CollectionInfo.obtain(itemCount, 1, false));
+        }
+        if (itemCount > 1) {
+            info.setScrollable(true);
+            info.addAction(AccessibilityNodeInfo.ACTION_SCROLL_FORWARD);
+            info.addAction(AccessibilityNodeInfo.ACTION_SCROLL_BACKWARD);
+        }
+        return info;
+    }
+
+    /**
+     * Creates the node for the item at the given index.
+     */
+    AccessibilityNodeInfo createItemNodeInfo(int index, T item) {
+        AccessibilityNodeInfo info = AccessibilityNodeInfo.obtain();
+        info.setSource(mDeckView, index);
+        info.setParent(mDeckView);
+        info.setPackageName(mDeckView.getContext().getPackageName());
+        info.setClassName(DeckChildView.class.getName());
+        info.setContentDescription(mDeckView.getItemDescription(index, item));
+        info.setEnabled(true);
+        info.setClickable(true);
+        info.addAction(AccessibilityNodeInfo.ACTION_CLICK);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            info.setCollectionItemInfo(
+                    AccessibilityNodeInfo.CollectionItemInfo.obtain(index, 1, 0, 1, false));
+            // The dismiss buttons of the task views are hidden behind the virtual views
+            info.setDismissable(true);
+            info.addAction(AccessibilityNodeInfo.ACTION_DISMISS);
+        }
+
+        // Compute the bounds from where the layout algorithm puts the task at the current scroll
+        DeckViewLayoutAlgorithm<T> algorithm = mDeckView.mLayoutAlgorithm;
+        algorithm.getStackTransform(index, mDeckView.mStackScroller.getStackScroll(),
+                mTmpTransform, null);
+        Rect bounds = mTmpRect;
+        bounds.set(mTmpTransform.rect);
+        info.setBoundsInParent(bounds);
+        mDeckView.getLocationOnScreen(mTmpLocation);
+        bounds.offset(mTmpLocation[0], mTmpLocation[1]);
+        info.setBoundsInScreen(bounds);
+        info.setVisibleToUser(mDeckView.isTaskIndexVisible(index));
+
+        if (mAccessibilityFocusedIndex == index) {
+            info.setAccessibilityFocused(true);
+            info.addAction(AccessibilityNodeInfo.ACTION_CLEAR_ACCESSIBILITY_FOCUS);
+        } else {
+            info.addAction(AccessibilityNodeInfo.ACTION_ACCESSIBILITY_FOCUS);
+        }
+        return info;
+    }
+
+    @Override
+    public boolean performAction(int virtualViewId, int action, Bundle arguments) {
+        if (virtualViewId == HostViewId) {
+            switch (action) {
+                case AccessibilityNodeInfo.ACTION_SCROLL_FORWARD:
+                case AccessibilityNodeInfo.ACTION_SCROLL_BACKWARD:
+                    if (mDeckView.ensureFocusedTask()) {
+                        mDeckView.focusNextTask(
+                                action == AccessibilityNodeInfo.ACTION_SCROLL_FORWARD, false);
+                        return true;
+                    }
+                    return false;
+                default:
+                    return mDeckView.performAccessibilityAction(action, arguments);
+            }
+        }
+
+        ArrayList<T> data = mDeckView.mCallback.getData();
+        if (virtualViewId < 0 || virtualViewId >= data.size()) {
+            return false;
+        }
+
+        switch (action) {
+            case AccessibilityNodeInfo.ACTION_ACCESSIBILITY_FOCUS:
+                if (mAccessibilityFocusedIndex == virtualViewId) return false;
+                if (mAccessibilityFocusedIndex >= 0) {
+                    sendEventForItem(mAccessibilityFocusedIndex,
+                            AccessibilityEvent.TYPE_VIEW_ACCESSIBILITY_FOCUS_CLEARED);
+                }
+                mAccessibilityFocusedIndex = virtualViewId;
+                // Bring the item on screen, this only binds the tasks around it
+                if (!mDeckView.isTaskIndexVisible(virtualViewId)) {
+                    mDeckView.scrollToChild(virtualViewId, true);
+                }
+                mDeckView.invalidate();
+                sendEventForItem(virtualViewId, AccessibilityEvent.TYPE_VIEW_ACCESSIBILITY_FOCUSED);
+                return true;
+            case AccessibilityNodeInfo.ACTION_CLEAR_ACCESSIBILITY_FOCUS:
+                if (mAccessibilityFocusedIndex != virtualViewId) return false;
+                mAccessibilityFocusedIndex = -1;
+                mDeckView.invalidate();
+                sendEventForItem(virtualViewId,
+                        AccessibilityEvent.TYPE_VIEW_ACCESSIBILITY_FOCUS_CLEARED);
+                return true;
+            case AccessibilityNodeInfo.ACTION_CLICK:
+                mDeckView.mCallback.onItemClick(data.get(virtualViewId));
+                sendEventForItem(virtualViewId, AccessibilityEvent.TYPE_VIEW_CLICKED);
+                return true;
+            case AccessibilityNodeInfo.ACTION_DISMISS:
+                if (mAccessibilityFocusedIndex == virtualViewId) {
+                    mAccessibilityFocusedIndex = -1;
+                }
+                return mDeckView.dismissTask(virtualViewId);
+        }
+        return false;
+    }
+
+    /**
+     * Handles hover events while touch exploring, and maps them onto the item under the pointer.
+     */
+    boolean onHoverEvent(MotionEvent event) {
+        switch (event.getAction()) {
+            case MotionEvent.ACTION_HOVER_ENTER:
+            case MotionEvent.ACTION_HOVER_MOVE:
+                int index = mDeckView.findTaskIndexAtPoint((int) event.getX(), (int) event.getY());
+                updateHoveredIndex(index);
+                return index >= 0;
+            case MotionEvent.ACTION_HOVER_EXIT:
+                if (mHoveredIndex >= 0) {
+                    updateHoveredIndex(-1);
+                    return true;
+                }
+                return false;
+        }
+        return false;
+    }
+
+    /**
+     * Updates the hovered item, and sends the hover enter and exit events.
+     */
+    void updateHoveredIndex(int index) {
+        if (mHoveredIndex == index) return;
+
+        int prevIndex = mHoveredIndex;
+        mHoveredIndex = index;
+        if (index >= 0) {
+            sendEventForItem(index, AccessibilityEvent.TYPE_VIEW_HOVER_ENTER);
+        }
+        if (prevIndex >= 0) {
+            sendEventForItem(prevIndex, AccessibilityEvent.TYPE_VIEW_HOVER_EXIT);
+        }
+    }
+
+    /**
+     * Sends an accessibility event from the virtual view of the item at the given index.
+     */
+    void sendEventForItem(int index, int eventType) {
+        ViewParent parent = mDeckView.getParent();
+        ArrayList<T> data = mDeckView.mCallback.getData();
+        if (parent == null || index < 0 || index >= data.size()) return;
+
+        AccessibilityEvent event = AccessibilityEvent.obtain(eventType);
+        event.setSource(mDeckView, index);
+        event.setPackageName(mDeckView.getContext().getPackageName());
+        event.setClassName(DeckChildView.class.getName());
+        event.setContentDescription(mDeckView.getItemDescription(index, data.get(index)));
+        event.setEnabled(true);
+        parent.requestSendAccessibilityEvent(mDeckView, event);
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2016 Zheng Li <https://lizheng.me>
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.lizheng.deckview.views;
+
+import android.graphics.Bitmap;
+
+import java.util.ArrayList;
+
+/**
+ * A bounded pool of the bitmaps that the task views take their impostor snapshots into, so that
+ * the snapshots of the views that are rebound or brought forward are reused rather than
+ * allocated again.  All the task views are the same size, so the pool usually holds bitmaps of a
+ * single size.  Only used from the UI thread.
+ */
+public class DeckViewBitmapPool {
+
+    ArrayList<Bitmap> mPool = new ArrayList<>();
+    int mMaxPoolSize;
+
+    public DeckViewBitmapPool(int maxPoolSize) {
+        mMaxPoolSize = maxPoolSize;
+    }
+
+    /**
+     * Returns a bitmap of the given size from the pool, or a new one if there is none.  The
+     * content of the bitmap is undefined.
+     */
+    Bitmap acquire(int width, int height) {
+        for (int i = mPool.size() - 1; i >= 0; i--) {
+            Bitmap bitmap = mPool.get(i);
+            if (bitmap.getWidth() == width && bitmap.getHeight() == height) {
+                mPool.remove(i);
+                return bitmap;
+            }
+        }
+        return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    }
+
+    /**
+     * Returns a bitmap to the pool, the oldest bitmap is recycled if the pool is full.
+     */
+    void release(Bitmap bitmap) {
+        if (mMaxPoolSize <= 0) {
+            bitmap.recycle();
+            return;
+        }
+        if (mPool.size() >= mMaxPoolSize) {
+            mPool.remove(0).recycle();
+        }
+        mPool.add(bitmap);
+    }
+
+    /**
+     * Recycles all the bitmaps in the pool.
+     */
+    void clear() {
+        for (int i = mPool.size() - 1; i >= 0; i--) {
+            mPool.get(i).recycle();
+        }
+        mPool.clear();
+    }
+
+    /**
+     * Returns the number of bitmaps in the pool.
+     */
+    int size() {
+        return mPool.size();
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2016 Zheng Li <https://lizheng.me>
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package me.lizheng.deckview.views;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.util.TypedValue;
+
+import java.util.Locale;
+
+/**
+ * A debug overlay drawn over a DeckView, showing the stack scroll, the visible range, the view
+ * pool and title cache hit rates, a histogram of the frame times, and the progress of each card.
+ * It only exists in builds with the DECK_DEBUG_OVERLAY flag, see DeckView.setDebugOverlayEnabled().
+ */
+public class DeckViewDebugOverlay {
+
+    // The upper bounds of the frame time histogram buckets, the last bucket has no upper bound
+    static final long[] FrameTimeBucketsMs = new long[]{17, 34, 50};
+    static final String[] FrameTimeBucketLabels = new String[]{"<17", "<34", "<50", "50+"};
+    // Frames further apart than this are idle time rather than slow frames
+    static final long MaxFrameTimeMs = 250;
+
+    DeckView mDeckView;
+
+    Paint mTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    Paint mBackgroundPaint = new Paint();
+    Paint mBarPaint = new Paint();
+    float mLineHeight;
+    float mPadding;
+
+    long mLastFrameTimeNanos;
+    int[] mFrameTimeCounts = new int[FrameTimeBucketsMs.length + 1];
+
+    public DeckViewDebugOverlay(DeckView dv) {
+        mDeckView = dv;
+        float textSize = TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, 11,
+                dv.getResources().getDisplayMetrics());
+        mTextPaint.setTextSize(textSize);
+        mTextPaint.setColor(Color.WHITE);
+        mBackgroundPaint.setColor(0x99000000);
+        mBarPaint.setColor(0xff4caf50);
+        mLineHeight = textSize * 1.25f;
+        mPadding = textSize / 2;
+    }
+
+    /**
+     * Records the time since the last frame, and draws the overlay.
+     */
+    void draw(Canvas canvas) {
+        recordFrame();
+
+        DeckViewLayoutAlgorithm algorithm = mDeckView.mLayoutAlgorithm;
+        int[] visibleRange = mDeckView.mVisibleRange;
+        ViewPool pool = mDeckView.mViewPool;
+        String[] lines = new String[]{
+                String.format(Locale.US, "scroll %.3f [%.3f, %.3f]",
+                        mDeckView.mStackScroller.getStackScroll(), algorithm.mMinScrollP,
+                        algorithm.mMaxScrollP),
+                "visible " + visibleRange[0] + ".." + visibleRange[1] + ", children "
+                        + mDeckView.getChildCount(),
+                "pool " + pool.getPoolSize() + ", hit " + formatRate(pool.getReusedCount(),
+                        pool.getReusedCount() + pool.getCreatedCount()),
+                "titles hit " + formatTitleCacheHitRate(),
+                "culled " + mDeckView.getCulledTaskViewCount() + ", thumbnails culled "
+                        + mDeckView.getCulledThumbnailCount() + ", header only "
+                        + getHeaderOnlyCount()
+        };
+
+        // Draw the stats and the frame time histogram in the top left corner
+        int histogramLines = mFrameTimeCounts.length;
+        float width = mDeckView.getWidth() / 2f;
+        float height = (lines.length + histogramLines) * mLineHeight + 2 * mPadding;
+        canvas.drawRect(0, 0, width, height, mBackgroundPaint);
+        float y = mPadding + mLineHeight;
+        for (String line : lines) {
+            canvas.drawText(line, mPadding, y, mTextPaint);
+            y += mLineHeight;
+        }
+        drawFrameTimeHistogram(canvas, y, width);
+
+        // Draw the progress of each card at its top
+        int childCount = mDeckView.getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            DeckChildView tv = (DeckChildView) mDeckView.getChildAt(i);
+            float top = DeckView.getTaskContentTop(tv);
+            canvas.drawText(String.format(Locale.US, "p %.3f", tv.getTaskProgress()),
+                    tv.getRight() - 6 * mLineHeight, top + mLineHeight, mTextPaint);
+        }
+    }
+
+    /**
+     * Adds the time since the last drawn frame to the histogram.
+     */
+    void recordFrame() {
+        long nowNanos = System.nanoTime();
+        if (mLastFrameTimeNanos > 0) {
+            long frameTimeMs = (nowNanos - mLastFrameTimeNanos) / 1000000;
+            if (frameTimeMs <= MaxFrameTimeMs) {
+                int bucket = 0;
+                while (bucket < FrameTimeBucketsMs.length
+                        && frameTimeMs >= FrameTimeBucketsMs[bucket]) {
+                    bucket++;
+                }
+                mFrameTimeCounts[bucket]++;
+            }
+        }
+        mLastFrameTimeNanos = nowNanos;
+    }
+
+    /**
+     * Draws a bar per frame time bucket, relative to the largest bucket.
+     */
+    void drawFrameTimeHistogram(Canvas canvas, float y, float width) {
+        int maxCount = 1;
+        for (int count : mFrameTimeCounts) {
+            maxCount = Math.max(maxCount, count);
+        }
+        float barLeft = mPadding + 3 * mLineHeight;
+        float barMaxWidth = width - barLeft - 4 * mLineHeight;
+        for (int i = 0; i < mFrameTimeCounts.length; i++) {
+            canvas.drawText(FrameTimeBucketLabels[i], mPadding, y, mTextPaint);
+            float barWidth = barMaxWidth * mFrameTimeCounts[i] / maxCount;
+            canvas.drawRect(barLeft, y - mLineHeight * 0.7f, barLeft + barWidth, y, mBarPaint);
+            canvas.drawText(String.valueOf(mFrameTimeCounts[i]), barLeft + barWidth + mPadding, y,
+                    mTextPaint);
+            y += mLineHeight;
+        }
+    }
+
+    /**
+     * Returns the number of attached task views that only draw their header bar.
+     */
+    int getHeaderOnlyCount() {
+        int count = 0;
+        int childCount = mDeckView.getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            if (((DeckChildView) mDeckView.getChildAt(i)).isHeaderOnly()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the hit rate of the title layout cache, if the stack has one.
+     */
+    String formatTitleCacheHitRate() {
+        DeckChildViewTitleCache titleCache = mDeckView.mTitleCache;
+        if (titleCache == null) return "-";
+        int hits = titleCache.mLayouts.hitCount();
+        return formatRate(hits, hits + titleCache.mLayouts.missCount());
+    }
+
+    static String formatRate(int count, int total) {
+        if (total == 0) return "-";
+        return String.format(Locale.US, "%d%%", 100 * count / total);
+    }
+}
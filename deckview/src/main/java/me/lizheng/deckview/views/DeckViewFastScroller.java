@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2016 Zheng Li <https://lizheng.me>
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.lizheng.deckview.views;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.view.MotionEvent;
+import android.view.ViewParent;
+
+import me.lizheng.deckview.helpers.DeckViewConfig;
+
+/**
+ * A scrubber drawn along the right edge of a DeckView.  The thumb position maps linearly onto the
+ * min/max stack scroll, so that large stacks can be traversed in a single drag.  While scrubbing,
+ * the stack only moves the thumb, and binds the tasks where the user releases it.
+ */
+public class DeckViewFastScroller {
+
+    DeckViewConfig mConfig;
+    DeckView mDeckView;
+    DeckViewLayoutAlgorithm mLayoutAlgorithm;
+    DeckViewScroller mScroller;
+
+    Paint mTrackPaint = new Paint();
+    Paint mThumbPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    Rect mTrackRect = new Rect();
+    RectF mThumbRect = new RectF();
+
+    boolean mIsScrubbing;
+    int mThumbTouchOffset;
+
+    public DeckViewFastScroller(DeckView dv, DeckViewConfig config,
+                                DeckViewLayoutAlgorithm layoutAlgorithm, DeckViewScroller scroller) {
+        mDeckView = dv;
+        mConfig = config;
+        mLayoutAlgorithm = layoutAlgorithm;
+        mScroller = scroller;
+        mTrackPaint.setColor(mConfig.fastScrollerTrackColor);
+        mThumbPaint.setColor(mConfig.fastScrollerThumbColor);
+    }
+
+    /**
+     * Returns whether the user is currently dragging the thumb.
+     */
+    public boolean isScrubbing() {
+        return mIsScrubbing;
+    }
+
+    /**
+     * Returns whether there is anything to scrub through.
+     */
+    boolean isScrollable() {
+        return mLayoutAlgorithm.mMaxScrollP > mLayoutAlgorithm.mMinScrollP;
+    }
+
+    /**
+     * Updates the track and thumb rects for the current stack scroll.
+     */
+    void updateRects() {
+        Rect stackRect = mLayoutAlgorithm.mStackVisibleRect;
+        int right = mDeckView.getWidth();
+        mTrackRect.set(right - mConfig.fastScrollerWidthPx, stackRect.top, right, stackRect.bottom);
+
+        int thumbTop = mTrackRect.top + (int) (getScrollFraction()
+                * (mTrackRect.height() - mConfig.fastScrollerThumbHeightPx));
+        mThumbRect.set(mTrackRect.left, thumbTop, mTrackRect.right,
+                thumbTop + mConfig.fastScrollerThumbHeightPx);
+    }
+
+    /**
+     * Returns the current stack scroll as a fraction of the scroll range.
+     */
+    float getScrollFraction() {
+        float range = mLayoutAlgorithm.mMaxScrollP - mLayoutAlgorithm.mMinScrollP;
+        float fraction = (mScroller.getStackScroll() - mLayoutAlgorithm.mMinScrollP) / range;
+        return Math.max(0f, Math.min(1f, fraction));
+    }
+
+    /**
+     * Draws the track and the thumb.
+     */
+    void draw(Canvas canvas) {
+        if (!isScrollable()) return;
+
+        updateRects();
+        canvas.drawRect(mTrackRect, mTrackPaint);
+        float radius = mConfig.fastScrollerWidthPx / 2f;
+        canvas.drawRoundRect(mThumbRect, radius, radius, mThumbPaint);
+    }
+
+    /**
+     * Starts scrubbing if the touch down lands on the fast scroller.
+     */
+    public boolean onInterceptTouchEvent(MotionEvent ev) {
+        if ((ev.getAction() & MotionEvent.ACTION_MASK) != MotionEvent.ACTION_DOWN) {
+            return mIsScrubbing;
+        }
+        if (!isScrollable()) return false;
+
+        int x = (int) ev.getX();
+        int y = (int) ev.getY();
+        updateRects();
+        if (x < mDeckView.getWidth() - mConfig.fastScrollerTouchWidthPx
+                || y < mTrackRect.top || y > mTrackRect.bottom) {
+            return false;
+        }
+
+        // Grab the thumb where it was touched, otherwise jump so that it is centered on the touch
+        if (mThumbRect.top <= y && y <= mThumbRect.bottom) {
+            mThumbTouchOffset = y - (int) mThumbRect.top;
+        } else {
+            mThumbTouchOffset = mConfig.fastScrollerThumbHeightPx / 2;
+        }
+
+        mIsScrubbing = true;
+        mScroller.stopScroller();
+        mScroller.stopBoundScrollAnimation();
+        mDeckView.onFastScrollStarted();
+        // Disallow parents from intercepting touch events
+        final ViewParent parent = mDeckView.getParent();
+        if (parent != null) {
+            parent.requestDisallowInterceptTouchEvent(true);
+        }
+        scrubTo(y);
+        return true;
+    }
+
+    /**
+     * Handles touch events once we are scrubbing.
+     */
+    public boolean onTouchEvent(MotionEvent ev) {
+        if (!mIsScrubbing) return false;
+
+        switch (ev.getAction() & MotionEvent.ACTION_MASK) {
+            case MotionEvent.ACTION_MOVE:
+                scrubTo((int) ev.getY());
+                break;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                mIsScrubbing = false;
+                mDeckView.onFastScrollEnded();
+                break;
+        }
+        return true;
+    }
+
+    /**
+     * Maps the thumb position for the given touch y onto the stack scroll.
+     */
+    void scrubTo(int y) {
+        int range = mTrackRect.height() - mConfig.fastScrollerThumbHeightPx;
+        float fraction = range > 0 ? (float) (y - mThumbTouchOffset - mTrackRect.top) / range : 0f;
+        fraction = Math.max(0f, Math.min(1f, fraction));
+        mScroller.setStackScroll(mLayoutAlgorithm.mMinScrollP
+                + fraction * (mLayoutAlgorithm.mMaxScrollP - mLayoutAlgorithm.mMinScrollP));
+    }
+}
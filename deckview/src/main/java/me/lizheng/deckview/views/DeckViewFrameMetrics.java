@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2016 Zheng Li <https://lizheng.me>
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package me.lizheng.deckview.views;
+
+/**
+ * The time a DeckView spent in each phase of its computeScroll() pipeline for one frame, and what
+ * the view sync did.  The same instance is reused for every frame, so listeners should copy out
+ * the values they want to keep.
+ */
+public class DeckViewFrameMetrics {
+    // The time spent in each phase, in nanoseconds
+    public long scrollNanos;
+    public long transformNanos;
+    public long syncNanos;
+    public long clipNanos;
+    public long accessibilityNanos;
+
+    // The number of tasks in the visible range
+    public int visibleCount;
+    // The number of task views picked up from and returned to the pool
+    public int bindCount;
+    public int unbindCount;
+
+    /**
+     * Resets the metrics for a new frame
+     */
+    void reset() {
+        scrollNanos = 0;
+        transformNanos = 0;
+        syncNanos = 0;
+        clipNanos = 0;
+        accessibilityNanos = 0;
+        visibleCount = 0;
+        bindCount = 0;
+        unbindCount = 0;
+    }
+
+    /**
+     * Returns the total time spent in the frame, in nanoseconds
+     */
+    public long getTotalNanos() {
+        return scrollNanos + transformNanos + syncNanos + clipNanos + accessibilityNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "DeckViewFrameMetrics scroll: " + scrollNanos + " transform: " + transformNanos
+                + " sync: " + syncNanos + " clip: " + clipNanos + " accessibility: "
+                + accessibilityNanos + " visible: " + visibleCount + " binds: " + bindCount
+                + " unbinds: " + unbindCount;
+    }
+}
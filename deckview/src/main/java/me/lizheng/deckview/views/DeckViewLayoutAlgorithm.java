@@ -19,24 +19,20 @@ package me.lizheng.deckview.views;
 
 import android.graphics.Rect;
 
+import me.lizheng.deckview.core.DeckRect;
+import me.lizheng.deckview.core.DeckStackLayout;
+import me.lizheng.deckview.core.DeckTransform;
 import me.lizheng.deckview.helpers.DeckChildViewTransform;
 import me.lizheng.deckview.helpers.DeckViewConfig;
-import me.lizheng.deckview.utilities.DVUtils;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 
 /* The layout logic for a TaskStackView.
  *
- * We are using a curve that defines the curve of the tasks as that go back in the recents list.
- * The curve is defined such that at curve progress p = 0 is the end of the curve (the top of the
- * stack rect), and p = 1 at the start of the curve and the bottom of the stack rect.
+ * The layout math itself lives in DeckStackLayout in the deckview-core module, this adapts it to
+ * the task keys, the config, and the android.graphics.Rect the views use.
  */
 public class DeckViewLayoutAlgorithm<T> {
 
-    // These are all going to change
-    static final float StackPeekMinScale = 0.8f; // The min scale of the last card in the peek area
-
     // A report of the visibility state of the stack
 //    public class VisibilityReport {
 //        public int numVisibleTasks;
@@ -52,8 +48,9 @@ public class DeckViewLayoutAlgorithm<T> {
 //    }
 
     DeckViewConfig mConfig;
+    DeckStackLayout mLayout;
 
-    // The various rects that define the stack view
+    // The various rects that define the stack view, mirrored from the layout
     public Rect mViewRect = new Rect();
     Rect mStackVisibleRect = new Rect();
     Rect mStackRect = new Rect();
@@ -63,111 +60,54 @@ public class DeckViewLayoutAlgorithm<T> {
     float mMinScrollP;
     float mMaxScrollP;
     float mInitialScrollP;
-    int mWithinAffiliationOffset;
-    int mBetweenAffiliationOffset;
-    HashMap<T, Float> mTaskProgressMap = new HashMap<>();
+    // The progress of each task, indexed by the position of the task in the data
+    float[] mTaskProgress = new float[0];
+    int mTaskCount;
 
-    // Log function
-    static final float XScale = 1.75f;  // The large the XScale, the longer the flat area of the curve
-    static final float LogBase = 3000;
-    static final int PrecisionSteps = 250;
-    static float[] xp;
-    static float[] px;
+    // Optimizations
+    DeckRect mTmpBounds = new DeckRect();
+    DeckTransform mTmpTransform = new DeckTransform();
+    DeckTransform mTmpPrevTransform = new DeckTransform();
 
     public DeckViewLayoutAlgorithm(DeckViewConfig config) {
         mConfig = config;
-
-        // Precompute the path
-        initializeCurve();
+        mLayout = new DeckStackLayout(config.stackCurve, config.taskStackWidthPaddingPct,
+                config.taskStackTopPaddingPx, config.taskBarHeight,
+                config.taskViewTranslationZMinPx, config.taskViewTranslationZMaxPx);
     }
 
     /**
      * Computes the stack and task rects
      */
     public void computeRects(int windowWidth, int windowHeight, Rect taskStackBounds) {
-        // Compute the stack rects
-        mViewRect.set(0, 0, windowWidth, windowHeight);
-        mStackRect.set(taskStackBounds);
-        mStackVisibleRect.set(taskStackBounds);
-        mStackVisibleRect.bottom = mViewRect.bottom;
-
-        int widthPadding = (int) (mConfig.taskStackWidthPaddingPct * mStackRect.width());
-        int heightPadding = mConfig.taskStackTopPaddingPx;
-        mStackRect.inset(widthPadding, heightPadding);
-
-        // Compute the task rect
-        int size = mStackRect.width();
-        int left = mStackRect.left + (mStackRect.width() - size) / 2;
-        mTaskRect.set(left, mStackRect.top,
-                left + size, mStackRect.top + size);
-
-        // Update the affiliation offsets
-        float visibleTaskPct = 0.5f;
-        mWithinAffiliationOffset = mConfig.taskBarHeight;
-        mBetweenAffiliationOffset = (int) (visibleTaskPct * mTaskRect.height());
+        mTmpBounds.set(taskStackBounds.left, taskStackBounds.top, taskStackBounds.right,
+                taskStackBounds.bottom);
+        mLayout.computeRects(windowWidth, windowHeight, mTmpBounds);
+        set(mViewRect, mLayout.viewRect);
+        set(mStackVisibleRect, mLayout.stackVisibleRect);
+        set(mStackRect, mLayout.stackRect);
+        set(mTaskRect, mLayout.taskRect);
     }
 
     /**
      * Computes the minimum and maximum scroll progress values.  This method may be called before
      * the RecentsConfiguration is set, so we need to pass in the alt-tab state.
      */
-    void computeMinMaxScroll(ArrayList<T> data, boolean launchedWithAltTab,
+    void computeMinMaxScroll(int taskCount, boolean launchedWithAltTab,
                              boolean launchedFromHome) {
-        // Clear the progress map
-        mTaskProgressMap.clear();
+        mLayout.computeMinMaxScroll(taskCount, launchedWithAltTab, launchedFromHome);
 
-        // Return early if we have no tasks
-        if (data.isEmpty()) {
-            mMinScrollP = mMaxScrollP = 0;
-            return;
+        // Update the progress of the tasks, the array only grows
+        if (mTaskProgress.length < taskCount) {
+            mTaskProgress = new float[taskCount];
         }
-
-        // Note that we should account for the scale difference of the offsets at the screen bottom
-        int taskHeight = mTaskRect.height();
-        float pAtBottomOfStackRect = screenYToCurveProgress(mStackVisibleRect.bottom);
-//        float pWithinAffiliateTop = screenYToCurveProgress(mStackVisibleRect.bottom -
-//                mWithinAffiliationOffset);
-//        float scale = curveProgressToScale(pWithinAffiliateTop);
-//        int scaleYOffset = (int) (((1f - scale) * taskHeight) / 2);
-//        pWithinAffiliateTop = screenYToCurveProgress(mStackVisibleRect.bottom -
-//                mWithinAffiliationOffset + scaleYOffset);
-//        float pWithinAffiliateOffset = pAtBottomOfStackRect - pWithinAffiliateTop;
-        float pBetweenAffiliateOffset = pAtBottomOfStackRect -
-                screenYToCurveProgress(mStackVisibleRect.bottom - mBetweenAffiliationOffset);
-        float pTaskHeightOffset = pAtBottomOfStackRect -
-                screenYToCurveProgress(mStackVisibleRect.bottom - taskHeight);
-        float pNavBarOffset = pAtBottomOfStackRect -
-                screenYToCurveProgress(mStackVisibleRect.bottom - (mStackVisibleRect.bottom -
-                        mStackRect.bottom));
-
-        // Update the task offsets
-        float pAtFrontMostCardTop = 0.5f;
-        int taskCount = data.size();
         for (int i = 0; i < taskCount; i++) {
-            //Task task = tasks.get(i);
-            //mTaskProgressMap.put(task.key, pAtFrontMostCardTop);
-            mTaskProgressMap.put(data.get(i), pAtFrontMostCardTop);
-
-            if (i < (taskCount - 1)) {
-                // Increment the peek height
-                // TODO: Might need adjustments
-                //float pPeek = task.group.isFrontMostTask(task) ?
-                //pBetweenAffiliateOffset : pWithinAffiliateOffset;
-                pAtFrontMostCardTop += pBetweenAffiliateOffset;
-            }
+            mTaskProgress[i] = mLayout.getTaskProgress(i);
         }
-
-        mMaxScrollP = pAtFrontMostCardTop - ((1f - pTaskHeightOffset - pNavBarOffset));
-        mMinScrollP = data.size() == 1 ? Math.max(mMaxScrollP, 0f) : 0f;
-
-        if (launchedWithAltTab && launchedFromHome) {
-            // Center the top most task, since that will be focused first
-            mInitialScrollP = mMaxScrollP;
-        } else {
-            mInitialScrollP = pAtFrontMostCardTop - 0.825f;
-        }
-
-        mInitialScrollP = Math.min(mMaxScrollP, Math.max(0, mInitialScrollP));
+        mTaskCount = taskCount;
+        mMinScrollP = mLayout.minScrollP;
+        mMaxScrollP = mLayout.maxScrollP;
+        mInitialScrollP = mLayout.initialScrollP;
     }
 
     /**
@@ -223,17 +163,33 @@ public class DeckViewLayoutAlgorithm<T> {
 //    }
 
     /**
-     * Update/get the transform
+     * Returns the index of the front most task that is not below the stack at the given scroll.
+     */
+    int getFrontMostVisibleIndex(int taskCount, float stackScroll) {
+        return mLayout.getFrontMostVisibleIndex(taskCount, stackScroll);
+    }
+
+    /**
+     * Update/get the transform of the task at the given index, straight from the layout.
+     */
+    DeckTransform getStackTransform(int index, float stackScroll, DeckTransform transformOut,
+                                    DeckTransform prevTransform) {
+        return mLayout.getStackTransform(mLayout.getTaskProgress(index), stackScroll,
+                transformOut, prevTransform);
+    }
+
+    /**
+     * Update/get the transform of the task at the given index
      */
-    public DeckChildViewTransform getStackTransform(T key, float stackScroll,
+    public DeckChildViewTransform getStackTransform(int index, float stackScroll,
                                                     DeckChildViewTransform transformOut,
                                                     DeckChildViewTransform prevTransform) {
         // Return early if we have an invalid index
-        if (!mTaskProgressMap.containsKey(key)) {
+        if (index < 0 || index >= mTaskCount) {
             transformOut.reset();
             return transformOut;
         }
-        return getStackTransform(mTaskProgressMap.get(key), stackScroll, transformOut,
+        return getStackTransform(mTaskProgress[index], stackScroll, transformOut,
                 prevTransform);
     }
 
@@ -243,40 +199,24 @@ public class DeckViewLayoutAlgorithm<T> {
     public DeckChildViewTransform getStackTransform(float taskProgress, float stackScroll,
                                                     DeckChildViewTransform transformOut,
                                                     DeckChildViewTransform prevTransform) {
-        float pTaskRelative = taskProgress - stackScroll;
-        float pBounded = Math.max(0, Math.min(pTaskRelative, 1f));
-
-        // If the task top is outside of the bounds below the screen, then immediately reset it
-        if (pTaskRelative > 1f) {
-            transformOut.reset();
-            transformOut.rect.set(mTaskRect);
-            return transformOut;
+        // The layout only looks at the progress of the previous transform
+        DeckTransform prev = null;
+        if (prevTransform != null) {
+            prev = mTmpPrevTransform;
+            prev.p = prevTransform.p;
         }
+        DeckTransform transform = mLayout.getStackTransform(taskProgress, stackScroll,
+                mTmpTransform, prev);
 
-        // The check for the top is trickier, since we want to show the next task if it is at all
-        // visible, even if p < 0.
-        if (pTaskRelative < 0f) {
-            if (prevTransform != null && Float.compare(prevTransform.p, 0f) <= 0) {
-                transformOut.reset();
-                transformOut.rect.set(mTaskRect);
-                return transformOut;
-            }
+        if (!transform.visible) {
+            transformOut.reset();
         }
-
-        float scale = curveProgressToScale(pBounded);
-        int scaleYOffset = (int) (((1f - scale) * mTaskRect.height()) / 2);
-        int minZ = mConfig.taskViewTranslationZMinPx;
-        int maxZ = mConfig.taskViewTranslationZMaxPx;
-        transformOut.scale = scale;
-        transformOut.translationY = curveProgressToScreenY(pBounded) - mStackVisibleRect.top -
-                scaleYOffset;
-        transformOut.translationZ = Math.max(minZ, minZ + (pBounded * (maxZ - minZ)));
-        transformOut.rect.set(mTaskRect);
-        transformOut.rect.offset(0, transformOut.translationY);
-        DVUtils.scaleRectAboutCenter(transformOut.rect, transformOut.scale);
-        transformOut.visible = true;
-        transformOut.p = pTaskRelative;
-
+        transformOut.scale = transform.scale;
+        transformOut.translationY = transform.translationY;
+        transformOut.translationZ = transform.translationZ;
+        transformOut.visible = transform.visible;
+        transformOut.p = transform.p;
+        set(transformOut.rect, transform.rect);
         return transformOut;
     }
 
@@ -292,145 +232,33 @@ public class DeckViewLayoutAlgorithm<T> {
     /**
      * Returns the scroll to such task top = 1f;
      */
-    public float getStackScrollForTask(T key) {
-        if (!mTaskProgressMap.containsKey(key)) return 0f;
-        return mTaskProgressMap.get(key);
+    public float getStackScrollForTask(int index) {
+        if (index < 0 || index >= mTaskCount) return 0f;
+        return mTaskProgress[index];
     }
 
-    /**
-     * Initializes the curve.
-     */
-    public static void initializeCurve() {
-        if (xp != null && px != null) return;
-
-        xp = new float[PrecisionSteps + 1];
-        px = new float[PrecisionSteps + 1];
-
-        // Approximate f(x)
-        float[] fx = new float[PrecisionSteps + 1];
-        float step = 1f / PrecisionSteps;
-        float x = 0;
-        for (int xStep = 0; xStep <= PrecisionSteps; xStep++) {
-            fx[xStep] = logFunc(x);
-            x += step;
-        }
-
-        // Calculate the arc length for x:1->0
-        float pLength = 0;
-        float[] dx = new float[PrecisionSteps + 1];
-        dx[0] = 0;
-        for (int xStep = 1; xStep < PrecisionSteps; xStep++) {
-            dx[xStep] = (float) Math.sqrt(Math.pow(fx[xStep] - fx[xStep - 1], 2) + Math.pow(step, 2));
-            pLength += dx[xStep];
-        }
-
-        // Approximate p(x), a function of cumulative progress with x, normalized to 0..1
-        float p = 0;
-        px[0] = 0f;
-        px[PrecisionSteps] = 1f;
-        for (int xStep = 1; xStep <= PrecisionSteps; xStep++) {
-            p += Math.abs(dx[xStep] / pLength);
-            px[xStep] = p;
-        }
-
-        // Given p(x), calculate the inverse function x(p). This assumes that x(p) is also a valid
-        // function.
-        int xStep = 0;
-        p = 0;
-        xp[0] = 0f;
-        xp[PrecisionSteps] = 1f;
-
-        for (int pStep = 0; pStep < PrecisionSteps; pStep++) {
-            // Walk forward in px and find the x where px <= p && p < px+1
-            while (xStep < PrecisionSteps) {
-                if (px[xStep] > p) break;
-                xStep++;
-            }
-
-            // Now, px[xStep-1] <= p < px[xStep]
-            if (xStep == 0) {
-                xp[pStep] = 0;
-            } else {
-                // Find x such that proportionally, x is correct
-                float fraction = (p - px[xStep - 1]) / (px[xStep] - px[xStep - 1]);
-                x = (xStep - 1 + fraction) * step;
-                xp[pStep] = x;
-            }
-
-            p += step;
-        }
-    }
-
-    /**
-     * Reverses and scales out x.
-     */
-    static float reverse(float x) {
-        return (-x * XScale) + 1;
-    }
-
-    /**
-     * The log function describing the curve.
-     */
-    static float logFunc(float x) {
-        return 1f - (float) (Math.pow(LogBase, reverse(x))) / (LogBase);
-    }
-
-    /**
-     * The inverse of the log function describing the curve.
-     */
-//    float invLogFunc(float y) {
-//        return (float) (Math.log((1f - reverse(y)) * (LogBase - 1) + 1) / Math.log(LogBase));
-//    }
-
     /**
      * Converts from the progress along the curve to a screen coordinate.
      */
     int curveProgressToScreenY(float p) {
-        if (p < 0 || p > 1) return mStackVisibleRect.top + (int) (p * mStackVisibleRect.height());
-        float pIndex = p * PrecisionSteps;
-        int pFloorIndex = (int) Math.floor(pIndex);
-        int pCeilIndex = (int) Math.ceil(pIndex);
-        float xFraction = 0;
-        if (pFloorIndex < PrecisionSteps && (pCeilIndex != pFloorIndex)) {
-            float pFraction = (pIndex - pFloorIndex) / (pCeilIndex - pFloorIndex);
-            xFraction = (xp[pCeilIndex] - xp[pFloorIndex]) * pFraction;
-        }
-        float x = xp[pFloorIndex] + xFraction;
-        return mStackVisibleRect.top + (int) (x * mStackVisibleRect.height());
+        return mLayout.curveProgressToScreenY(p);
     }
 
     /**
      * Converts from the progress along the curve to a scale.
      */
     float curveProgressToScale(float p) {
-        if (p < 0) return StackPeekMinScale;
-        if (p > 1) return 1f;
-        float scaleRange = (1f - StackPeekMinScale);
-
-        return StackPeekMinScale + (p * scaleRange);
+        return mLayout.curveProgressToScale(p);
     }
 
     /**
      * Converts from a screen coordinate to the progress along the curve.
      */
     float screenYToCurveProgress(int screenY) {
-        float x = (float) (screenY - mStackVisibleRect.top) / mStackVisibleRect.height();
-
-        if (x < 0 || x > 1) {
-            //noinspection SuspiciousNameCombination
-            return x;
-        }
-
-        float xIndex = x * PrecisionSteps;
-        int xFloorIndex = (int) Math.floor(xIndex);
-        int xCeilIndex = (int) Math.ceil(xIndex);
-        float pFraction = 0;
-
-        if (xFloorIndex < PrecisionSteps && (xCeilIndex != xFloorIndex)) {
-            float xFraction = (xIndex - xFloorIndex) / (xCeilIndex - xFloorIndex);
-            pFraction = (px[xCeilIndex] - px[xFloorIndex]) * xFraction;
-        }
+        return mLayout.screenYToCurveProgress(screenY);
+    }
 
-        return px[xFloorIndex] + pFraction;
+    static void set(Rect r, DeckRect dr) {
+        r.set(dr.left, dr.top, dr.right, dr.bottom);
     }
-}
\ No newline at end of file
+}
@@ -33,6 +33,10 @@ public class DeckViewScroller {
         void onScrollChanged(float p);
     }
 
+    // The max progress that we animate through when scrolling to a far away task, this is about a
+    // screenful of the stack
+    static final float MaxAnimatedScrollP = 1f;
+
     DeckViewConfig mConfig;
     DeckViewLayoutAlgorithm mLayoutAlgorithm;
     DeckViewScrollerCallbacks mCb;
@@ -201,6 +205,19 @@ public class DeckViewScroller {
         mScrollAnimator.start();
     }
 
+    /**
+     * Animates the stack scroll, but if the new scroll is further than a screenful away, first
+     * jumps to just short of it so that only the last screenful is animated.  The tasks in between
+     * are never visible, and so are never bound.
+     */
+    void animateLongScroll(float curScroll, float newScroll, final Runnable postRunnable) {
+        float delta = newScroll - curScroll;
+        if (Math.abs(delta) > MaxAnimatedScrollP) {
+            curScroll = newScroll - Math.signum(delta) * MaxAnimatedScrollP;
+        }
+        animateScroll(curScroll, newScroll, postRunnable);
+    }
+
     /**
      * Aborts any current stack scrolls
      */
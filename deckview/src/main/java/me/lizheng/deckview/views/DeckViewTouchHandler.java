@@ -104,16 +104,7 @@ public class DeckViewTouchHandler implements DeckViewSwipeHelper.Callback {
      * Returns the view at the specified coordinates
      */
     DeckChildView findViewAtPoint(int x, int y) {
-        int childCount = mDeckView.getChildCount();
-        for (int i = childCount - 1; i >= 0; i--) {
-            DeckChildView tv = (DeckChildView) mDeckView.getChildAt(i);
-            if (tv.getVisibility() == View.VISIBLE) {
-                if (mDeckView.isTransformedTouchPointInView(x, y, tv)) {
-                    return tv;
-                }
-            }
-        }
-        return null;
+        return mDeckView.findChildViewAtPoint(x, y);
     }
 
     /**
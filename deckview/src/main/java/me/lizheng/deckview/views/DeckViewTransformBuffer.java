@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2016 Zheng Li <https://lizheng.me>
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.lizheng.deckview.views;
+
+import java.util.Arrays;
+
+import me.lizheng.deckview.core.DeckRect;
+import me.lizheng.deckview.core.DeckTransform;
+import me.lizheng.deckview.helpers.DeckChildViewTransform;
+
+/**
+ * The transforms of the visible range of tasks, stored as parallel arrays indexed from the front
+ * most visible task.  The arrays only grow to the largest visible range seen, so their size is
+ * bounded by the screen rather than by the number of tasks.
+ */
+public class DeckViewTransformBuffer {
+
+    int frontMostIndex = -1;
+    int count;
+
+    int[] translationY = new int[0];
+    float[] translationZ = new float[0];
+    float[] scale = new float[0];
+    float[] alpha = new float[0];
+    float[] p = new float[0];
+    int[] left = new int[0];
+    int[] top = new int[0];
+    int[] right = new int[0];
+    int[] bottom = new int[0];
+
+    /**
+     * Empties the buffer, the next task added is the front most visible one.
+     */
+    void clear(int frontMostIndex) {
+        this.frontMostIndex = frontMostIndex;
+        count = 0;
+    }
+
+    /**
+     * Returns whether the buffer has the transform of the task at the given index.
+     */
+    boolean contains(int taskIndex) {
+        int slot = frontMostIndex - taskIndex;
+        return 0 <= slot && slot < count;
+    }
+
+    /**
+     * Appends the transform of the next task behind the last one added.
+     */
+    void add(DeckTransform transform) {
+        if (count == p.length) {
+            grow(Math.max(8, count * 2));
+        }
+        int slot = count++;
+        DeckRect rect = transform.rect;
+        translationY[slot] = transform.translationY;
+        translationZ[slot] = transform.translationZ;
+        scale[slot] = transform.scale;
+        alpha[slot] = 1f;
+        p[slot] = transform.p;
+        left[slot] = rect.left;
+        top[slot] = rect.top;
+        right[slot] = rect.right;
+        bottom[slot] = rect.bottom;
+    }
+
+    /**
+     * Copies the transform of the task at the given index into a view transform.
+     */
+    DeckChildViewTransform get(int taskIndex, DeckChildViewTransform transformOut) {
+        int slot = frontMostIndex - taskIndex;
+        transformOut.startDelay = 0;
+        transformOut.visible = true;
+        transformOut.translationY = translationY[slot];
+        transformOut.translationZ = translationZ[slot];
+        transformOut.scale = scale[slot];
+        transformOut.alpha = alpha[slot];
+        transformOut.p = p[slot];
+        transformOut.rect.set(left[slot], top[slot], right[slot], bottom[slot]);
+        return transformOut;
+    }
+
+    /**
+     * Returns the progress of the task at the given index.
+     */
+    float getP(int taskIndex) {
+        return p[frontMostIndex - taskIndex];
+    }
+
+    /**
+     * Returns the top edge of the task at the given index.
+     */
+    int getTop(int taskIndex) {
+        return top[frontMostIndex - taskIndex];
+    }
+
+    /**
+     * Returns the bottom edge of the task at the given index.
+     */
+    int getBottom(int taskIndex) {
+        return bottom[frontMostIndex - taskIndex];
+    }
+
+    /**
+     * Returns the left edge of the task at the given index.
+     */
+    int getLeft(int taskIndex) {
+        return left[frontMostIndex - taskIndex];
+    }
+
+    /**
+     * Returns the right edge of the task at the given index.
+     */
+    int getRight(int taskIndex) {
+        return right[frontMostIndex - taskIndex];
+    }
+
+    /**
+     * Grows the arrays to the given capacity, keeping the transforms added so far.
+     */
+    void grow(int capacity) {
+        translationY = Arrays.copyOf(translationY, capacity);
+        translationZ = Arrays.copyOf(translationZ, capacity);
+        scale = Arrays.copyOf(scale, capacity);
+        alpha = Arrays.copyOf(alpha, capacity);
+        p = Arrays.copyOf(p, capacity);
+        left = Arrays.copyOf(left, capacity);
+        top = Arrays.copyOf(top, capacity);
+        right = Arrays.copyOf(right, capacity);
+        bottom = Arrays.copyOf(bottom, capacity);
+    }
+}
@@ -19,6 +19,8 @@ package me.lizheng.deckview.views;
 
 import android.content.Context;
 
+import me.lizheng.deckview.utilities.DVTrace;
+
 import java.util.Iterator;
 import java.util.LinkedList;
 
@@ -29,13 +31,20 @@ public class ViewPool<V, T> {
     public interface ViewPoolConsumer<V, T> {
         V createView(Context context);
         void prepareViewToEnterPool(V v);
-        void prepareViewToLeavePool(V v, T prepareData, boolean isNewView);
+        void prepareViewToLeavePool(V v, T prepareData, int prepareIndex, boolean isNewView);
         boolean hasPreferredData(V v, T preferredData);
+        void discardView(V v);
     }
 
     Context mContext;
     ViewPoolConsumer<V, T> mViewCreator;
     LinkedList<V> mPool = new LinkedList<>();
+    int mMaxPoolSize = Integer.MAX_VALUE;
+
+    // The number of views created, reused from the pool and discarded, over the life of the pool
+    int mCreatedCount;
+    int mReusedCount;
+    int mDiscardedCount;
 
     /**
      * Initializes the pool with a fixed predetermined pool size
@@ -45,23 +54,43 @@ public class ViewPool<V, T> {
         mViewCreator = viewCreator;
     }
 
+    /**
+     * Sets the max number of views kept in the pool, the views returned beyond that are discarded
+     */
+    void setMaxPoolSize(int maxPoolSize) {
+        mMaxPoolSize = maxPoolSize;
+        while (mPool.size() > mMaxPoolSize) {
+            mViewCreator.discardView(mPool.removeLast());
+            mDiscardedCount++;
+        }
+    }
+
     /**
      * Returns a view into the pool
      */
     void returnViewToPool(V v) {
+        DVTrace.beginSection("ViewPool.returnViewToPool");
         mViewCreator.prepareViewToEnterPool(v);
-        mPool.push(v);
+        if (mPool.size() < mMaxPoolSize) {
+            mPool.push(v);
+        } else {
+            mViewCreator.discardView(v);
+            mDiscardedCount++;
+        }
+        DVTrace.endSection();
     }
 
     /**
-     * Gets a view from the pool and prepares it
+     * Gets a view from the pool and prepares it for the data at the given position
      */
-    V pickUpViewFromPool(T preferredData, T prepareData) {
+    V pickUpViewFromPool(T preferredData, T prepareData, int prepareIndex) {
+        DVTrace.beginSection("ViewPool.pickUpViewFromPool");
         V v = null;
         boolean isNewView = false;
         if (mPool.isEmpty()) {
             v = mViewCreator.createView(mContext);
             isNewView = true;
+            mCreatedCount++;
         } else {
             // Try and find a preferred view
             Iterator<V> iter = mPool.iterator();
@@ -77,11 +106,41 @@ public class ViewPool<V, T> {
             if (v == null) {
                 v = mPool.pop();
             }
+            mReusedCount++;
         }
-        mViewCreator.prepareViewToLeavePool(v, prepareData, isNewView);
+        mViewCreator.prepareViewToLeavePool(v, prepareData, prepareIndex, isNewView);
+        DVTrace.endSection();
         return v;
     }
 
+    /**
+     * Returns the number of views currently in the pool
+     */
+    int getPoolSize() {
+        return mPool.size();
+    }
+
+    /**
+     * Returns the number of views the pool had to create because it was empty
+     */
+    int getCreatedCount() {
+        return mCreatedCount;
+    }
+
+    /**
+     * Returns the number of views picked up from the pool instead of being created
+     */
+    int getReusedCount() {
+        return mReusedCount;
+    }
+
+    /**
+     * Returns the number of views discarded because the pool was full
+     */
+    int getDiscardedCount() {
+        return mDiscardedCount;
+    }
+
     /**
      * Returns an iterator to the list of the views in the pool.
      */
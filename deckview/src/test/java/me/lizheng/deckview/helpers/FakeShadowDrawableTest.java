@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2016 Zheng Li <https://lizheng.me>
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.lizheng.deckview.helpers;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import me.lizheng.deckview.BuildConfig;
+import me.lizheng.deckview.views.DeckViewTestRunner;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the shadow atlases are shared between the drawables, and that they stay within
+ * their budget.
+ */
+@RunWith(DeckViewTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class FakeShadowDrawableTest {
+
+    Canvas mCanvas;
+
+    @Before
+    public void setUp() {
+        FakeShadowDrawable.sShadowAtlases.evictAll();
+        mCanvas = new Canvas(Bitmap.createBitmap(1, 1, Bitmap.Config.ARGB_8888));
+    }
+
+    FakeShadowDrawable drawShadow(float shadowSize) {
+        FakeShadowDrawable d = new FakeShadowDrawable(RuntimeEnvironment.application,
+                DeckViewConfig.from(RuntimeEnvironment.application));
+        d.setShadowSize(shadowSize, shadowSize);
+        d.setBounds(0, 0, 400, 400);
+        d.draw(mCanvas);
+        return d;
+    }
+
+    @Test
+    public void sameGeometrySharesTheAtlas() {
+        FakeShadowDrawable a = drawShadow(8);
+        FakeShadowDrawable b = drawShadow(8);
+        FakeShadowDrawable c = drawShadow(9);
+
+        assertSame(a.mShadowAtlas, b.mShadowAtlas);
+        assertNotSame(a.mShadowAtlas, c.mShadowAtlas);
+    }
+
+    @Test
+    public void atlasesStayWithinTheirBudget() {
+        // Every shadow size needs its own atlas, more than the cache can hold
+        for (int size = 1; size <= 200; size++) {
+            drawShadow(size);
+        }
+
+        assertTrue("The shadow atlases are over their budget: "
+                        + FakeShadowDrawable.sShadowAtlases.size(),
+                FakeShadowDrawable.sShadowAtlases.size()
+                        <= FakeShadowDrawable.MaxShadowAtlasBytes);
+        assertTrue(FakeShadowDrawable.sShadowAtlases.evictionCount() > 0);
+    }
+}
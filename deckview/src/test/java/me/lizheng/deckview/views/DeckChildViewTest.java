@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2016 Zheng Li <https://lizheng.me>
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.lizheng.deckview.views;
+
+import android.view.LayoutInflater;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import me.lizheng.deckview.BuildConfig;
+import me.lizheng.deckview.R;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the state that the task views start out with, once they are inflated.
+ */
+@RunWith(DeckViewTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class DeckChildViewTest {
+
+    @Test
+    public void inflateFlatChildView() {
+        DeckFlatChildView tv = (DeckFlatChildView) LayoutInflater
+                .from(RuntimeEnvironment.application)
+                .inflate(R.layout.deck_flat_child_view, null);
+
+        // The initial dim is applied to the thumbnail paint of the flat view
+        assertTrue("The flat view has no dim at progress 0", tv.getDim() > 0);
+        assertEquals(tv.getDimFromTaskProgress(), tv.getDim());
+        assertEquals(tv.getDim() / 255f, tv.mThumbnailDimAlpha, 0.001f);
+    }
+
+    @Test
+    public void backChildViewStartsAtMinimalEffects() {
+        DeckViewTestHarness harness = new DeckViewTestHarness(RuntimeEnvironment.application, 10);
+        DeckView<Integer> deckView = harness.deckView;
+
+        // Find the freshly bound task view furthest back in the stack
+        DeckChildView back = null;
+        for (int i = 0; i < deckView.getChildCount(); i++) {
+            DeckChildView tv = (DeckChildView) deckView.getChildAt(i);
+            if (back == null || tv.getTaskProgress() < back.getTaskProgress()) {
+                back = tv;
+            }
+        }
+        assertTrue("There are no task views", back != null);
+        assertEquals(back.getEffectsLodFromTaskProgress(), back.mEffectsLod);
+        assertEquals(DeckChildView.EffectsLodMinimal, back.mEffectsLod);
+
+        // The components of the view have the reduced effects too
+        assertFalse(back.mHeaderView.mHighlightEnabled);
+        assertFalse(back.mThumbnailView.mDrawPaint.isAntiAlias());
+    }
+}
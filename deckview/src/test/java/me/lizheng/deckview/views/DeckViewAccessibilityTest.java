@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2016 Zheng Li <https://lizheng.me>
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.lizheng.deckview.views;
+
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import me.lizheng.deckview.BuildConfig;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the items of the stack can be dismissed through their virtual accessibility views,
+ * whether or not a task view is bound to them.
+ */
+@RunWith(DeckViewTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class DeckViewAccessibilityTest {
+
+    static final int ItemCount = 100;
+    static final long DismissAnimationMs = 1000;
+
+    DeckViewTestHarness mHarness;
+    DeckViewAccessibilityNodeProvider<Integer> mProvider;
+
+    @Before
+    public void setUp() {
+        mHarness = new DeckViewTestHarness(RuntimeEnvironment.application, ItemCount);
+        mHarness.scrollToMiddle();
+        @SuppressWarnings("unchecked")
+        DeckViewAccessibilityNodeProvider<Integer> provider =
+                (DeckViewAccessibilityNodeProvider<Integer>) mHarness.deckView
+                        .getAccessibilityNodeProvider();
+        mProvider = provider;
+    }
+
+    @Test
+    public void itemNodesHaveTheDismissAction() {
+        int index = mHarness.deckView.mVisibleRange[0];
+        AccessibilityNodeInfo info = mProvider.createAccessibilityNodeInfo(index);
+        assertTrue("The item can not be dismissed", info.isDismissable());
+        assertTrue((info.getActions() & AccessibilityNodeInfo.ACTION_DISMISS) != 0);
+    }
+
+    @Test
+    public void dismissBoundItem() {
+        int index = mHarness.deckView.mVisibleRange[0];
+        Integer item = mHarness.data.get(index);
+        assertTrue("The item is not bound", mHarness.deckView.getChildViewForTask(item) != null);
+
+        // The task view animates out first, like with its dismiss button
+        assertTrue(mProvider.performAction(index, AccessibilityNodeInfo.ACTION_DISMISS, null));
+        ShadowLooper.idleMainLooper(DismissAnimationMs);
+        assertFalse("The item was not dismissed", mHarness.data.contains(item));
+        assertEquals(ItemCount - 1, mHarness.data.size());
+    }
+
+    @Test
+    public void dismissUnboundItem() {
+        int index = 0;
+        Integer item = mHarness.data.get(index);
+        assertTrue("The item is bound", mHarness.deckView.getChildViewForTask(item) == null);
+
+        assertTrue(mProvider.performAction(index, AccessibilityNodeInfo.ACTION_DISMISS, null));
+        assertFalse("The item was not dismissed", mHarness.data.contains(item));
+        assertFalse(mProvider.performAction(ItemCount, AccessibilityNodeInfo.ACTION_DISMISS,
+                null));
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2016 Zheng Li <https://lizheng.me>
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.lizheng.deckview.views;
+
+import com.google.monitoring.runtime.instrumentation.AllocationRecorder;
+import com.google.monitoring.runtime.instrumentation.Sampler;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+
+/**
+ * Counts the objects that the library allocates on the current thread, through the allocation
+ * instrumenter agent that the build attaches to the unit tests.  An allocation is counted when the
+ * innermost frame outside of the JDK belongs to the library, so that the allocations of the
+ * framework and of Robolectric's shadows, which box the arguments of every shadowed call, are left
+ * out.
+ */
+class DeckViewAllocationSampler implements Sampler {
+
+    static final String AgentJarName = "java-allocation-instrumenter";
+    static final String LibraryPackage = "me.lizheng.deckview.";
+    // The test classes, whose allocations are not the library's
+    static final String[] TestClassPrefixes = {
+            DeckViewAllocationTest.class.getName(),
+            DeckViewTestHarness.class.getName(),
+    };
+    static final int MaxSites = 20;
+
+    Thread mThread;
+    int mCount;
+    ArrayList<String> mSites = new ArrayList<>();
+
+    /**
+     * Returns whether the allocation instrumenter agent is attached to this JVM.
+     */
+    static boolean isAgentAttached() {
+        for (String arg : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (arg.startsWith("-javaagent:") && arg.contains(AgentJarName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Resets the count and starts counting the allocations of the current thread.
+     */
+    void start() {
+        reset();
+        if (mThread == null) {
+            mThread = Thread.currentThread();
+            AllocationRecorder.addSampler(this);
+        }
+    }
+
+    /**
+     * Stops counting, the count is kept until the next reset.
+     */
+    void stop() {
+        if (mThread != null) {
+            AllocationRecorder.removeSampler(this);
+            mThread = null;
+        }
+    }
+
+    /**
+     * Returns the number of objects allocated by the library since the last reset.
+     */
+    int getCount() {
+        return mCount;
+    }
+
+    /**
+     * Resets the count and the recorded places.
+     */
+    void reset() {
+        mCount = 0;
+        mSites.clear();
+    }
+
+    /**
+     * Returns the places where the library allocated, for the assertion messages.
+     */
+    String getSites() {
+        StringBuilder sb = new StringBuilder();
+        for (String site : mSites) {
+            sb.append("\n    ").append(site);
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public void sampleAllocation(int count, String desc, Object newObj, long size) {
+        if (Thread.currentThread() != mThread) {
+            return;
+        }
+        StackTraceElement[] stack = Thread.currentThread().getStackTrace();
+        for (int i = 0; i < stack.length; i++) {
+            String className = stack[i].getClassName();
+            if (className.startsWith("java.") || className.startsWith("sun.")
+                    || className.startsWith("com.google.monitoring.")
+                    || className.equals(DeckViewAllocationSampler.class.getName())) {
+                continue;
+            }
+            if (className.startsWith(LibraryPackage) && !isTestClass(className)) {
+                mCount++;
+                if (mSites.size() < MaxSites) {
+                    mSites.add(desc + " at " + stack[i]
+                            + (i + 1 < stack.length ? " from " + stack[i + 1] : ""));
+                }
+            }
+            return;
+        }
+    }
+
+    static boolean isTestClass(String className) {
+        for (String prefix : TestClassPrefixes) {
+            if (className.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
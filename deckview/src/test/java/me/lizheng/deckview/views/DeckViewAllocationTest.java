@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2016 Zheng Li <https://lizheng.me>
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.lizheng.deckview.views;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.view.LayoutInflater;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import me.lizheng.deckview.BuildConfig;
+import me.lizheng.deckview.R;
+import me.lizheng.deckview.helpers.DeckChildViewTransform;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Guards the per-frame paths of the stack against allocating: scrolling and synchronizing the
+ * stack, applying a transform to a task view, and drawing and dimming a thumbnail.  Each path is
+ * warmed up first so that the caches it relies on are filled, and must then not allocate a single
+ * object in the library, as counted by the allocation instrumenter agent.  Only the measured part
+ * is sampled, since the sampler walks the stack of every allocation.
+ */
+@RunWith(DeckViewTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21,
+        shadows = DeckViewTestHarness.ShadowFlingingOverScroller.class)
+public class DeckViewAllocationTest {
+
+    static final int ItemCount = 1000;
+    static final int FlingDistance = -DeckViewTestHarness.WindowHeight / 2;
+    static final int MaxFrames = 600;
+    static final int Iterations = 200;
+
+    // The dims used to animate the thumbnails, which are cycled through by the tests
+    static final float[] DimAlphas = {0f, 0.1f, 0.2f, 0.3f, 0.4f, 0.5f};
+
+    DeckViewAllocationSampler mSampler = new DeckViewAllocationSampler();
+
+    /**
+     * A canvas that drops what is drawn into it, so that only the view's own work is measured.
+     */
+    static class NoOpCanvas extends Canvas {
+        @Override
+        public void drawRoundRect(RectF rect, float rx, float ry, Paint paint) {
+            // Do nothing
+        }
+    }
+
+    /**
+     * Records whether the last frame of a fling was steady, that is, whether no task view was
+     * bound or unbound in it.
+     */
+    static class SteadyFrameRecorder implements DeckView.FrameMetricsListener {
+        boolean steady;
+
+        @Override
+        public void onFrameMetrics(DeckViewFrameMetrics metrics) {
+            steady = metrics.bindCount == 0 && metrics.unbindCount == 0;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        assumeTrue("The allocation instrumenter agent is not attached",
+                DeckViewAllocationSampler.isAgentAttached());
+    }
+
+    @After
+    public void tearDown() {
+        mSampler.stop();
+    }
+
+    @Test
+    public void steadyScrollFramesDoNotAllocate() {
+        DeckViewTestHarness harness = new DeckViewTestHarness(
+                RuntimeEnvironment.application, ItemCount);
+        harness.scrollToMiddle();
+
+        // Warm up the view pool and the caches with a fling each way
+        flingToRest(harness, FlingDistance);
+        flingToRest(harness, -FlingDistance);
+
+        SteadyFrameRecorder recorder = new SteadyFrameRecorder();
+        harness.deckView.setFrameMetricsListener(recorder);
+        harness.fling(FlingDistance);
+        assertTrue("The fling did not start", harness.isFlinging());
+        int steadyFrames = 0;
+        int allocationCount = 0;
+        String sites = "";
+        mSampler.start();
+        for (int i = 0; i < MaxFrames && harness.isFlinging(); i++) {
+            mSampler.reset();
+            harness.frame();
+            if (recorder.steady) {
+                steadyFrames++;
+                if (mSampler.getCount() > 0) {
+                    allocationCount += mSampler.getCount();
+                    sites = mSampler.getSites();
+                }
+            }
+        }
+        harness.deckView.setFrameMetricsListener(null);
+
+        assertTrue("The fling had no steady frames", steadyFrames > 0);
+        assertEquals("Steady scroll frames allocated, last at:" + sites, 0, allocationCount);
+    }
+
+    @Test
+    public void updateViewPropertiesDoesNotAllocate() {
+        DeckViewTestHarness harness = new DeckViewTestHarness(
+                RuntimeEnvironment.application, ItemCount);
+        DeckChildView tv = (DeckChildView) harness.deckView.getChildAt(0);
+        DeckChildViewTransform transform = new DeckChildViewTransform();
+        transform.visible = true;
+
+        // Warm up, then apply the same sequence of transforms again
+        applyTransforms(tv, transform);
+        mSampler.start();
+        applyTransforms(tv, transform);
+        assertEquals("Applying a transform allocated at:" + mSampler.getSites(),
+                0, mSampler.getCount());
+    }
+
+    @Test
+    public void thumbnailDrawDoesNotAllocate() {
+        DeckChildViewThumbnail thumbnail = (DeckChildViewThumbnail) LayoutInflater
+                .from(RuntimeEnvironment.application)
+                .inflate(R.layout.deck_child_view, null)
+                .findViewById(R.id.task_view_thumbnail);
+        thumbnail.rebindToTask(Bitmap.createBitmap(64, 64, Bitmap.Config.ARGB_8888));
+        Canvas canvas = new NoOpCanvas();
+
+        // Warm up, then dim and draw the thumbnail the same way again
+        drawThumbnail(thumbnail, canvas);
+        mSampler.start();
+        drawThumbnail(thumbnail, canvas);
+        assertEquals("Drawing a thumbnail allocated at:" + mSampler.getSites(),
+                0, mSampler.getCount());
+    }
+
+    @Test
+    public void flatThumbnailDimDoesNotAllocate() {
+        DeckFlatChildView tv = (DeckFlatChildView) LayoutInflater
+                .from(RuntimeEnvironment.application)
+                .inflate(R.layout.deck_flat_child_view, null);
+        Bitmap bitmap = Bitmap.createBitmap(64, 64, Bitmap.Config.ARGB_8888);
+        tv.mThumbnailShader = new BitmapShader(bitmap, Shader.TileMode.CLAMP,
+                Shader.TileMode.CLAMP);
+
+        // Warm up, then animate the dim the same way again
+        dimFlatThumbnail(tv);
+        mSampler.start();
+        dimFlatThumbnail(tv);
+        mSampler.stop();
+        assertEquals("Dimming a flat thumbnail allocated at:" + mSampler.getSites(),
+                0, mSampler.getCount());
+
+        // The flat view shares the filters of the thumbnails
+        tv.setThumbnailDimAlpha(0.5f);
+        Object filter = tv.mThumbnailPaint.getColorFilter();
+        tv.setThumbnailDimAlpha(0.25f);
+        tv.setThumbnailDimAlpha(0.5f);
+        assertTrue("The flat thumbnail created a new filter for the same dim",
+                filter == tv.mThumbnailPaint.getColorFilter());
+    }
+
+    @Test
+    public void lightingColorFilterCacheIsBounded() {
+        for (int mul = 0; mul <= 255; mul++) {
+            for (int add = 0; add <= 255; add++) {
+                DeckChildViewThumbnail.getLightingColorFilter(mul, add);
+            }
+        }
+        assertTrue("The filter cache holds " + DeckChildViewThumbnail.sLightingColorFilters.size()
+                        + " filters",
+                DeckChildViewThumbnail.sLightingColorFilters.size()
+                        <= DeckChildViewThumbnail.MaxLightingColorFilters);
+        assertEquals(0, DeckChildViewThumbnail.quantizeColorComponent(1));
+        assertEquals(255, DeckChildViewThumbnail.quantizeColorComponent(255));
+    }
+
+    static void flingToRest(DeckViewTestHarness harness, int dy) {
+        harness.fling(dy);
+        for (int i = 0; i < MaxFrames && harness.isFlinging(); i++) {
+            harness.frame();
+        }
+    }
+
+    static void applyTransforms(DeckChildView tv, DeckChildViewTransform transform) {
+        for (int i = 0; i < Iterations; i++) {
+            transform.translationY = i % 100;
+            transform.scale = 0.9f + (i % 10) / 100f;
+            transform.p = (i % 100) / 100f;
+            tv.updateViewPropertiesToTaskTransform(transform, 0);
+        }
+    }
+
+    static void drawThumbnail(DeckChildViewThumbnail thumbnail, Canvas canvas) {
+        for (int i = 0; i < Iterations; i++) {
+            thumbnail.setDimAlpha(DimAlphas[i % DimAlphas.length]);
+            thumbnail.onDraw(canvas);
+        }
+    }
+
+    static void dimFlatThumbnail(DeckFlatChildView tv) {
+        for (int i = 0; i < Iterations; i++) {
+            tv.setThumbnailDimAlpha(DimAlphas[i % DimAlphas.length]);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2016 Zheng Li <https://lizheng.me>
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.lizheng.deckview.views;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import me.lizheng.deckview.BuildConfig;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the task views keep the positions of their tasks in the data as items are inserted
+ * and removed, since the stack synchronizes its views by those positions.
+ */
+@RunWith(DeckViewTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class DeckViewDataChangeTest {
+
+    static final int ItemCount = 20;
+
+    DeckViewTestHarness mHarness;
+
+    @Before
+    public void setUp() {
+        mHarness = new DeckViewTestHarness(RuntimeEnvironment.application, ItemCount);
+        mHarness.scrollToMiddle();
+        assertAdapterIndices();
+    }
+
+    @Test
+    public void insertShiftsTheTasksBehind() {
+        int position = getBackMostBoundIndex() + 1;
+        mHarness.data.add(position, ItemCount);
+        mHarness.deckView.notifyItemInserted(position);
+        assertAdapterIndices();
+        mHarness.frame();
+        assertAdapterIndices();
+
+        mHarness.data.add(0, ItemCount + 1);
+        mHarness.deckView.notifyItemInserted(0);
+        assertAdapterIndices();
+        mHarness.frame();
+        assertAdapterIndices();
+    }
+
+    @Test
+    public void removeShiftsTheTasksBehind() {
+        // Remove a bound task, its view goes back to the pool
+        int position = getBackMostBoundIndex() + 1;
+        Integer removed = mHarness.data.remove(position);
+        mHarness.deckView.notifyItemRemoved(position);
+        mHarness.frame();
+        assertAdapterIndices();
+        assertTrue("The removed task is still bound",
+                mHarness.deckView.getChildViewForTask(removed) == null);
+
+        mHarness.data.remove(0);
+        mHarness.deckView.notifyItemRemoved(0);
+        mHarness.frame();
+        assertAdapterIndices();
+    }
+
+    @Test
+    public void dataSetChangeLooksUpThePositions() {
+        mHarness.data.add(0, ItemCount);
+        mHarness.data.remove(mHarness.data.size() / 2);
+        mHarness.deckView.notifyDataSetChanged();
+        mHarness.frame();
+        assertAdapterIndices();
+    }
+
+    int getBackMostBoundIndex() {
+        DeckView<Integer> deckView = mHarness.deckView;
+        int index = Integer.MAX_VALUE;
+        for (int i = 0; i < deckView.getChildCount(); i++) {
+            index = Math.min(index, ((DeckChildView) deckView.getChildAt(i)).getAdapterIndex());
+        }
+        return index;
+    }
+
+    void assertAdapterIndices() {
+        DeckView<Integer> deckView = mHarness.deckView;
+        assertTrue("There are no task views", deckView.getChildCount() > 0);
+        for (int i = 0; i < deckView.getChildCount(); i++) {
+            @SuppressWarnings("unchecked")
+            DeckChildView<Integer> tv = (DeckChildView<Integer>) deckView.getChildAt(i);
+            if (tv.getAdapterIndex() != -1) {
+                assertEquals("The position of task " + tv.getAttachedKey(),
+                        mHarness.data.indexOf(tv.getAttachedKey()), tv.getAdapterIndex());
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2016 Zheng Li <https://lizheng.me>
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.lizheng.deckview.views;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import me.lizheng.deckview.BuildConfig;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the stack keeps binding its tasks while the fast scroller is dragged, with only
+ * their headers, and loads their thumbnails once the user lets go.
+ */
+@RunWith(DeckViewTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class DeckViewFastScrollTest {
+
+    static final int ItemCount = 1000;
+
+    @Test
+    public void scrubbingBindsHeadersOnly() {
+        DeckViewTestHarness harness = new DeckViewTestHarness(
+                RuntimeEnvironment.application, ItemCount);
+        DeckView<Integer> deckView = harness.deckView;
+        DeckViewLayoutAlgorithm<Integer> algorithm = deckView.mLayoutAlgorithm;
+
+        deckView.onFastScrollStarted();
+        deckView.mStackScroller.setStackScroll(
+                (algorithm.mMinScrollP + algorithm.mMaxScrollP) / 2f);
+        harness.frame();
+
+        // The tasks at the new scroll are bound, without their thumbnails
+        assertTrue("There are no task views", deckView.getChildCount() > 0);
+        for (int i = 0; i < deckView.getChildCount(); i++) {
+            DeckChildView tv = (DeckChildView) deckView.getChildAt(i);
+            int index = tv.getAdapterIndex();
+            assertTrue("Task " + index + " is not in the visible range",
+                    deckView.mVisibleRange[1] <= index && index <= deckView.mVisibleRange[0]);
+            assertTrue("Task " + index + " was bound with its thumbnail", tv.isHeaderOnly());
+            assertEquals(null, tv.mThumbnailView.mBitmapShader);
+        }
+
+        // Once the user lets go, the tasks get their thumbnails, as far as the svelte level
+        // of the device allows
+        deckView.onFastScrollEnded();
+        for (int i = 0; i < deckView.getChildCount(); i++) {
+            DeckChildView tv = (DeckChildView) deckView.getChildAt(i);
+            int index = tv.getAdapterIndex();
+            assertEquals(deckView.isHeaderOnlyTask(index), tv.isHeaderOnly());
+            assertEquals(!tv.isHeaderOnly(), tv.mThumbnailView.mBitmapShader != null);
+        }
+        DeckChildView front = (DeckChildView) deckView.getChildAt(deckView.getChildCount() - 1);
+        assertFalse("The front task has no thumbnail", front.isHeaderOnly());
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2016 Zheng Li <https://lizheng.me>
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.lizheng.deckview.views;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import me.lizheng.deckview.BuildConfig;
+import me.lizheng.deckview.helpers.DeckViewConfig;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the impostor snapshots of the task views are taken before drawing, kept for as
+ * long as they are good, and reused from the pool of the stack.
+ */
+@RunWith(DeckViewTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class DeckViewImpostorTest {
+
+    static final int ItemCount = 10;
+
+    DeckViewTestHarness mHarness;
+    DeckChildView mBack;
+
+    @Before
+    public void setUp() {
+        DeckViewConfig config = new DeckViewConfig.Builder(RuntimeEnvironment.application)
+                .setSvelteLevel(DeckViewConfig.SVELTE_NONE)
+                .setTaskViewImpostorsEnabled(true)
+                .build();
+        mHarness = new DeckViewTestHarness(RuntimeEnvironment.application, ItemCount, config);
+
+        // Move the task view furthest back in the stack to the back of the curve, where it is an
+        // impostor
+        DeckView<Integer> deckView = mHarness.deckView;
+        mBack = (DeckChildView) deckView.getChildAt(0);
+        mBack.setTaskProgress(0f);
+        assertTrue("The back task view is not an impostor", mBack.mIsImpostor);
+    }
+
+    @Test
+    public void snapshotIsTakenBeforeDrawing() {
+        assertTrue(mBack.mImpostorDirty);
+        mHarness.deckView.onPreDraw();
+        Bitmap snapshot = mBack.mImpostorBitmap;
+        assertTrue("The snapshot was not taken", snapshot != null);
+        assertFalse(mBack.mImpostorDirty);
+
+        // Drawing only draws the snapshot
+        mBack.draw(new Canvas());
+        assertSame(snapshot, mBack.mImpostorBitmap);
+        assertFalse(mBack.mImpostorDirty);
+    }
+
+    @Test
+    public void snapshotIsKeptUntilRebound() {
+        mHarness.deckView.onPreDraw();
+        Bitmap snapshot = mBack.mImpostorBitmap;
+
+        // Crossing the impostor progress and back keeps the snapshot
+        mBack.setTaskProgress(1f);
+        assertFalse(mBack.mIsImpostor);
+        mBack.setTaskProgress(0f);
+        assertTrue(mBack.mIsImpostor);
+        assertSame(snapshot, mBack.mImpostorBitmap);
+        assertFalse(mBack.mImpostorDirty);
+
+        // So do the header only and no user interaction states
+        mBack.setNoUserInteractionState();
+        mBack.resetNoUserInteractionState();
+        mBack.setHeaderOnly(true);
+        assertFalse(mBack.mImpostorDirty);
+
+        // Rebinding retakes it into the same bitmap
+        mBack.onDataLoaded(mBack.getAttachedKey(), mHarness.thumbnail, null,
+                DeckViewTestHarness.Title, DeckViewTestHarness.HeaderColor);
+        assertTrue(mBack.mImpostorDirty);
+        mHarness.deckView.onPreDraw();
+        assertSame(snapshot, mBack.mImpostorBitmap);
+        assertFalse(mBack.mImpostorDirty);
+    }
+
+    @Test
+    public void snapshotIsReusedFromThePool() {
+        DeckView<Integer> deckView = mHarness.deckView;
+        deckView.onPreDraw();
+        Bitmap snapshot = mBack.mImpostorBitmap;
+
+        // Unbinding returns the snapshot to the pool, and the next one is taken into it
+        mBack.onDataUnloaded();
+        assertEquals(null, mBack.mImpostorBitmap);
+        assertEquals(1, deckView.mImpostorPool.size());
+        deckView.onPreDraw();
+        assertSame(snapshot, mBack.mImpostorBitmap);
+        assertEquals(0, deckView.mImpostorPool.size());
+    }
+
+    @Test
+    public void poolIsBounded() {
+        DeckViewBitmapPool pool = new DeckViewBitmapPool(DeckView.ImpostorPoolSize);
+        for (int i = 0; i < DeckView.ImpostorPoolSize * 2; i++) {
+            pool.release(Bitmap.createBitmap(8, 8, Bitmap.Config.ARGB_8888));
+        }
+        assertEquals(DeckView.ImpostorPoolSize, pool.size());
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2016 Zheng Li <https://lizheng.me>
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.lizheng.deckview.views;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+import me.lizheng.deckview.BuildConfig;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Flings stacks of increasing size through the touch handler and steps the scroller frame by
+ * frame, recording where the time and the memory go.  The results are written to a JSON report
+ * in the directory given by the deckview.reportsDir system property, which the build points into
+ * its output directory.
+ */
+@RunWith(DeckViewTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21,
+        shadows = DeckViewTestHarness.ShadowFlingingOverScroller.class)
+public class DeckViewScrollStressTest {
+
+    static final int[] ItemCounts = {10, 1000, 100000};
+    static final int FlingDistance = -DeckViewTestHarness.WindowHeight / 2;
+    static final int MaxFrames = 600;
+
+    static final String ReportFileName = "scroll-stress.json";
+    // The reports directory of the module when the test is run outside of Gradle, e.g. in the IDE
+    static final String DefaultReportsDir = "build/reports/deckview";
+
+    /**
+     * Adds up the frame metrics reported by the stack during a fling.
+     */
+    static class MetricsRecorder implements DeckView.FrameMetricsListener {
+        int frames;
+        long syncNanos;
+        long clipNanos;
+        long scrollNanos;
+        long maxFrameNanos;
+        int bindCount;
+        int unbindCount;
+        int maxVisibleCount;
+
+        @Override
+        public void onFrameMetrics(DeckViewFrameMetrics metrics) {
+            frames++;
+            syncNanos += metrics.transformNanos + metrics.syncNanos;
+            clipNanos += metrics.clipNanos;
+            scrollNanos += metrics.scrollNanos;
+            maxFrameNanos = Math.max(maxFrameNanos, metrics.getTotalNanos());
+            bindCount += metrics.bindCount;
+            unbindCount += metrics.unbindCount;
+            maxVisibleCount = Math.max(maxVisibleCount, metrics.visibleCount);
+        }
+    }
+
+    @Test
+    public void flingThroughStacks() throws JSONException, IOException {
+        JSONArray runs = new JSONArray();
+        for (int itemCount : ItemCounts) {
+            runs.put(fling(itemCount));
+        }
+
+        JSONObject report = new JSONObject();
+        report.put("flingDistance", FlingDistance);
+        report.put("runs", runs);
+        writeReport(report);
+    }
+
+    JSONObject fling(int itemCount) throws JSONException {
+        DeckViewTestHarness harness = new DeckViewTestHarness(
+                RuntimeEnvironment.application, itemCount);
+        DeckView<Integer> deckView = harness.deckView;
+        harness.scrollToMiddle();
+
+        // Only count the fling itself, not the initial layout
+        MetricsRecorder recorder = new MetricsRecorder();
+        deckView.setFrameMetricsListener(recorder);
+        harness.measureNanos = 0;
+        int createdCount = deckView.getCreatedTaskViewCount();
+        int reusedCount = deckView.getReusedTaskViewCount();
+        int discardedCount = deckView.getDiscardedTaskViewCount();
+        long allocatedBytes = DeckViewTestHarness.getAllocatedBytes();
+
+        harness.fling(FlingDistance);
+        assertTrue("The fling did not start for " + itemCount + " items", harness.isFlinging());
+        int frameCount = 0;
+        while (harness.isFlinging() && frameCount < MaxFrames) {
+            harness.frame();
+            frameCount++;
+        }
+
+        allocatedBytes = DeckViewTestHarness.getAllocatedBytes() - allocatedBytes;
+        deckView.setFrameMetricsListener(null);
+
+        JSONObject run = new JSONObject();
+        run.put("items", itemCount);
+        run.put("frames", frameCount);
+        run.put("reportedFrames", recorder.frames);
+        run.put("syncNanos", recorder.syncNanos);
+        run.put("clipNanos", recorder.clipNanos);
+        run.put("scrollNanos", recorder.scrollNanos);
+        run.put("measureNanos", harness.measureNanos);
+        run.put("maxFrameNanos", recorder.maxFrameNanos);
+        run.put("maxVisible", recorder.maxVisibleCount);
+        run.put("binds", recorder.bindCount);
+        run.put("unbinds", recorder.unbindCount);
+        run.put("poolCreated", deckView.getCreatedTaskViewCount() - createdCount);
+        run.put("poolReused", deckView.getReusedTaskViewCount() - reusedCount);
+        run.put("poolDiscarded", deckView.getDiscardedTaskViewCount() - discardedCount);
+        run.put("poolSize", deckView.getPooledTaskViewCount());
+        run.put("allocatedBytes", allocatedBytes);
+        return run;
+    }
+
+    static void writeReport(JSONObject report) throws JSONException, IOException {
+        File dir = new File(System.getProperty("deckview.reportsDir", DefaultReportsDir));
+        File file = new File(dir, ReportFileName);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Could not create " + dir);
+        }
+        Writer writer = new FileWriter(file);
+        try {
+            writer.write(report.toString(2));
+        } finally {
+            writer.close();
+        }
+    }
+}
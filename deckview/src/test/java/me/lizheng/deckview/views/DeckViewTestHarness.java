@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2016 Zheng Li <https://lizheng.me>
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.lizheng.deckview.views;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+import android.widget.OverScroller;
+
+import org.robolectric.annotation.Implements;
+
+import me.lizheng.deckview.helpers.DeckViewConfig;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+
+/**
+ * Builds a DeckView with a given number of items, laid out in a phone sized window, and steps it
+ * frame by frame the way the choreographer would.  The clock is advanced with SystemClock.sleep(),
+ * which only moves the fake clock under Robolectric.
+ */
+class DeckViewTestHarness {
+
+    /**
+     * Runs the real OverScroller against the Robolectric clock.  The default shadow does not
+     * implement fling(), so the stack would never fling.
+     */
+    @Implements(value = OverScroller.class, callThroughByDefault = true)
+    public static class ShadowFlingingOverScroller {
+    }
+
+    static final int WindowWidth = 1080;
+    static final int WindowHeight = 1920;
+    static final long FrameMs = 16;
+
+    static final String Title = "Item";
+    static final int HeaderColor = 0xff607d8b;
+
+    final DeckView<Integer> deckView;
+    final ArrayList<Integer> data = new ArrayList<>();
+    final Bitmap thumbnail = Bitmap.createBitmap(64, 64, Bitmap.Config.ARGB_8888);
+
+    // The time spent measuring the stack, in nanoseconds
+    long measureNanos;
+
+    DeckViewTestHarness(Context context, int itemCount) {
+        this(context, itemCount, null);
+    }
+
+    /**
+     * Creates the stack with the given config, or with the default one if it is null.
+     */
+    DeckViewTestHarness(Context context, int itemCount, DeckViewConfig config) {
+        for (int i = 0; i < itemCount; i++) {
+            data.add(i);
+        }
+        deckView = new DeckView<>(context);
+        DeckView.Callback<Integer> callback = new DeckView.Callback<Integer>() {
+            @Override
+            public ArrayList<Integer> getData() {
+                return data;
+            }
+
+            @Override
+            public void loadViewData(WeakReference<DeckChildView<Integer>> dcv, Integer item) {
+                DeckChildView<Integer> tv = dcv.get();
+                if (tv != null) {
+                    tv.onDataLoaded(item, thumbnail, null, Title, HeaderColor);
+                }
+            }
+
+            @Override
+            public void unloadViewData(Integer item) {
+                // Nothing to release
+            }
+
+            @Override
+            public void onViewDismissed(Integer item) {
+                int position = data.indexOf(item);
+                data.remove(position);
+                deckView.notifyItemRemoved(position);
+            }
+
+            @Override
+            public void onItemClick(Integer item) {
+                // Do nothing
+            }
+
+            @Override
+            public void onNoViewsToDeck() {
+                // Do nothing
+            }
+        };
+        if (config != null) {
+            deckView.initialize(callback, config);
+        } else {
+            deckView.initialize(callback);
+        }
+        layout();
+    }
+
+    /**
+     * Measures and lays out the stack in the window.
+     */
+    void layout() {
+        long startNanos = System.nanoTime();
+        deckView.measure(
+                View.MeasureSpec.makeMeasureSpec(WindowWidth, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(WindowHeight, View.MeasureSpec.EXACTLY));
+        measureNanos += System.nanoTime() - startNanos;
+        deckView.layout(0, 0, WindowWidth, WindowHeight);
+    }
+
+    /**
+     * Advances the clock by one frame, computes the scroll, and lays out the stack again if that
+     * requested it.
+     */
+    void frame() {
+        SystemClock.sleep(FrameMs);
+        deckView.computeScroll();
+        if (deckView.isLayoutRequested()) {
+            layout();
+        }
+    }
+
+    /**
+     * Scrolls the stack to the middle of its scroll range, so that a fling either way has room to
+     * run.
+     */
+    void scrollToMiddle() {
+        DeckViewLayoutAlgorithm<Integer> algorithm = deckView.mLayoutAlgorithm;
+        deckView.mStackScroller.setStackScroll(
+                (algorithm.mMinScrollP + algorithm.mMaxScrollP) / 2f);
+        frame();
+    }
+
+    /**
+     * Drags a finger over the given distance across a few frames and lets go, through the touch
+     * handler of the stack.
+     */
+    void fling(int dy) {
+        int x = WindowWidth / 2;
+        int y = (dy > 0) ? WindowHeight / 4 : WindowHeight * 3 / 4;
+        long downTime = SystemClock.uptimeMillis();
+        dispatchTouchEvent(downTime, MotionEvent.ACTION_DOWN, x, y);
+        int steps = 5;
+        for (int i = 1; i <= steps; i++) {
+            SystemClock.sleep(FrameMs);
+            dispatchTouchEvent(downTime, MotionEvent.ACTION_MOVE, x, y + dy * i / steps);
+        }
+        dispatchTouchEvent(downTime, MotionEvent.ACTION_UP, x, y + dy);
+    }
+
+    void dispatchTouchEvent(long downTime, int action, int x, int y) {
+        MotionEvent ev = MotionEvent.obtain(downTime, SystemClock.uptimeMillis(), action, x, y, 0);
+        deckView.dispatchTouchEvent(ev);
+        ev.recycle();
+    }
+
+    /**
+     * Returns whether the stack is still flinging.
+     */
+    boolean isFlinging() {
+        return deckView.mStackScroller.isScrolling();
+    }
+
+    /**
+     * Returns the number of bytes allocated by the current thread so far, or -1 if the JVM does
+     * not count them.
+     */
+    static long getAllocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(
+                    Thread.currentThread().getId());
+        }
+        return -1;
+    }
+}
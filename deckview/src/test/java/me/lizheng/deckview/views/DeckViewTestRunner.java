@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2016 Zheng Li <https://lizheng.me>
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.lizheng.deckview.views;
+
+import org.junit.runners.model.InitializationError;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.internal.bytecode.InstrumentationConfiguration;
+
+/**
+ * Runs the tests of the library under Robolectric.  The allocation instrumenter agent, which the
+ * build attaches to the unit tests, is left to the system class loader, so that the code loaded by
+ * Robolectric reports to the same recorder as the tests.
+ */
+public class DeckViewTestRunner extends RobolectricGradleTestRunner {
+
+    static final String AllocationInstrumenterPackage = "com.google.monitoring";
+
+    public DeckViewTestRunner(Class<?> testClass) throws InitializationError {
+        super(testClass);
+    }
+
+    @Override
+    public InstrumentationConfiguration createClassLoaderConfig() {
+        return InstrumentationConfiguration.newBuilder()
+                .doNotAquirePackage(AllocationInstrumenterPackage)
+                .build();
+    }
+}
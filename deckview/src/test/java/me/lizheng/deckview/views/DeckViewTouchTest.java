@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2016 Zheng Li <https://lizheng.me>
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package me.lizheng.deckview.views;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import me.lizheng.deckview.BuildConfig;
+
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that touches find the task views where they are drawn, and only while they are still
+ * bound to the task they were synchronized with.
+ */
+@RunWith(DeckViewTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class DeckViewTouchTest {
+
+    static final int ItemCount = 20;
+
+    DeckViewTestHarness mHarness;
+    DeckChildView<Integer> mFront;
+
+    @Before
+    public void setUp() {
+        mHarness = new DeckViewTestHarness(RuntimeEnvironment.application, ItemCount);
+        DeckView<Integer> deckView = mHarness.deckView;
+        @SuppressWarnings("unchecked")
+        DeckChildView<Integer> front =
+                (DeckChildView<Integer>) deckView.getChildAt(deckView.getChildCount() - 1);
+        mFront = front;
+    }
+
+    @Test
+    public void touchFindsTheViewWhereItIsDrawn() {
+        int x = getCenterX(mFront);
+        int y = getCenterY(mFront);
+        assertSame(mFront, mHarness.deckView.findChildViewAtPoint(x, y));
+
+        // Move and shrink the view like an animation would, the touch follows it
+        mFront.setTranslationY(mFront.getTranslationY() + mFront.getHeight());
+        mFront.setScaleX(0.5f);
+        mFront.setScaleY(0.5f);
+        assertTrue("The view was found where it was synchronized",
+                mHarness.deckView.findChildViewAtPoint(x, y) != mFront);
+        assertSame(mFront, mHarness.deckView.findChildViewAtPoint(getCenterX(mFront),
+                getCenterY(mFront)));
+        int edgeX = getCenterX(mFront) + mFront.getWidth() * 3 / 8;
+        assertTrue("The view was found outside of its scaled bounds",
+                mHarness.deckView.findChildViewAtPoint(edgeX, getCenterY(mFront)) != mFront);
+    }
+
+    @Test
+    public void touchSkipsViewsBoundToAnotherTask() {
+        int x = getCenterX(mFront);
+        int y = getCenterY(mFront);
+        mFront.onTaskBound(ItemCount);
+        assertTrue("A view bound to another task was found",
+                mHarness.deckView.findChildViewAtPoint(x, y) != mFront);
+    }
+
+    // Returns where the center of the view is drawn, given its scale around its pivot
+    static int getCenterX(DeckChildView tv) {
+        float pivotX = tv.getPivotX();
+        return (int) (tv.getLeft() + tv.getTranslationX() + pivotX
+                + (tv.getWidth() / 2f - pivotX) * tv.getScaleX());
+    }
+
+    static int getCenterY(DeckChildView tv) {
+        float pivotY = tv.getPivotY();
+        return (int) (tv.getTop() + tv.getTranslationY() + pivotY
+                + (tv.getHeight() / 2f - pivotY) * tv.getScaleY());
+    }
+}
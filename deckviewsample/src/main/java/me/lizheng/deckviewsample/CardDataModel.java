@@ -73,4 +73,9 @@ public class CardDataModel implements Parcelable {
     public boolean equals(Object o) {
         return o instanceof CardDataModel && ((CardDataModel) o).id == this.id;
     }
+
+    @Override
+    public int hashCode() {
+        return id;
+    }
 }
\ No newline at end of file
@@ -18,6 +18,7 @@
 package me.lizheng.deckviewsample;
 
 import android.app.Activity;
+import android.content.Intent;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.graphics.Color;
@@ -112,8 +113,9 @@ public class DeckViewSampleActivity extends Activity {
 
             @Override
             public void onViewDismissed(CardDataModel item) {
-                mEntries.remove(item);
-                mDeckView.notifyDataSetChanged();
+                int position = mEntries.indexOf(item);
+                mEntries.remove(position);
+                mDeckView.notifyItemRemoved(position);
             }
 
             @Override
@@ -132,6 +134,19 @@ public class DeckViewSampleActivity extends Activity {
         };
 
         mDeckView.initialize(deckViewCallback);
+        mDeckView.setFastScrollEnabled(true);
+        mDeckView.setItemDescriptionProvider(new DeckView.ItemDescriptionProvider<CardDataModel>() {
+            @Override
+            public CharSequence getItemDescription(CardDataModel item) {
+                return item.title;
+            }
+        });
+        mDeckView.setTitleProvider(new DeckView.TitleProvider<CardDataModel>() {
+            @Override
+            public String getTitle(CardDataModel item) {
+                return item.title;
+            }
+        });
 
         if (scrollToChildIndex != -1) {
             mDeckView.post(new Runnable() {
@@ -165,7 +180,7 @@ public class DeckViewSampleActivity extends Activity {
             cardDataModel.title = "(New) Image ID " + cardDataModel.id;
 
             mEntries.add(cardDataModel);
-            mDeckView.notifyDataSetChanged();
+            mDeckView.notifyItemInserted(mEntries.size() - 1);
             return true;
         } else if (id == R.id.action_add_multiple) {
             // Add multiple items (between 5 & 10 items)
@@ -188,6 +203,9 @@ public class DeckViewSampleActivity extends Activity {
 
             mDeckView.notifyDataSetChanged();
 
+            return true;
+        } else if (id == R.id.action_stress_mode) {
+            startActivity(new Intent(this, DeckViewStressActivity.class));
             return true;
         }
 
@@ -0,0 +1,395 @@
+/*
+ * Copyright (C) 2016 Zheng Li <https://lizheng.me>
+ * Copyright (C) 2014 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package me.lizheng.deckviewsample;
+
+import android.annotation.TargetApi;
+import android.app.Activity;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.support.v4.content.ContextCompat;
+import android.util.LruCache;
+import android.view.Choreographer;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.view.MotionEvent;
+import android.widget.TextView;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Random;
+
+import me.lizheng.deckview.views.DeckChildView;
+import me.lizheng.deckview.views.DeckView;
+import me.lizheng.deckview.views.DeckViewFrameMetrics;
+
+/**
+ * Stress mode for DeckView, used as a reproducible perf harness.
+ * It fills the deck with up to a million items, each with its own
+ * generated thumbnail of a different size, and can insert and remove
+ * items at a steady rate and script flings through the deck.
+ * The frame stats are shown at the bottom of the screen.
+ *
+ * The item count can be passed in the "item_count" extra, e.g.
+ * adb shell am start -n me.lizheng.deckviewsample/.DeckViewStressActivity --ei item_count 100000
+ */
+public class DeckViewStressActivity extends Activity {
+
+    public static final String EXTRA_ITEM_COUNT = "item_count";
+
+    static final int DefaultItemCount = 1000;
+    static final long StatsIntervalMs = 500;
+    static final long ChurnIntervalMs = 100;
+    static final long FlingIntervalMs = 1500;
+    static final int FlingSteps = 5;
+    static final long FlingStepMs = 10;
+    // Frames longer than this have missed at least one vsync
+    static final long JankFrameNanos = 17 * 1000000;
+
+    DeckView<CardDataModel> mDeckView;
+    TextView mStatsView;
+    Drawable mDefaultHeaderIcon;
+    ArrayList<CardDataModel> mEntries = new ArrayList<>();
+    int mNextId;
+
+    // The generated thumbnails, sized by their byte count
+    LruCache<Integer, Bitmap> mThumbnails;
+    int mThumbnailHits;
+    int mThumbnailMisses;
+    Canvas mThumbnailCanvas = new Canvas();
+    Paint mThumbnailPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    Handler mHandler = new Handler();
+    Random mRandom = new Random(0);
+    boolean mChurnEnabled;
+    boolean mFlingEnabled;
+    boolean mFlingUp = true;
+
+    // Frame stats, reset at each readout
+    int mFrameCount;
+    long mTotalFrameNanos;
+    long mMaxFrameNanos;
+    int mBindCount;
+    int mUnbindCount;
+    int mVsyncCount;
+    int mJankCount;
+    long mLastVsyncNanos;
+    Choreographer.FrameCallback mFrameCallback;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_deck_view_stress);
+
+        //noinspection unchecked
+        mDeckView = (DeckView) findViewById(R.id.deckview);
+        mStatsView = (TextView) findViewById(R.id.stats);
+        mDefaultHeaderIcon = ContextCompat.getDrawable(getApplicationContext(),
+                R.drawable.default_header_icon);
+        mThumbnailPaint.setColor(Color.WHITE);
+        mThumbnailPaint.setTextAlign(Paint.Align.CENTER);
+
+        // Use an eighth of the memory class for the thumbnails
+        int maxBytes = (int) (Runtime.getRuntime().maxMemory() / 8);
+        mThumbnails = new LruCache<Integer, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(Integer key, Bitmap value) {
+                return value.getByteCount();
+            }
+        };
+
+        resetEntries(getIntent().getIntExtra(EXTRA_ITEM_COUNT, DefaultItemCount));
+
+        mDeckView.initialize(new DeckView.Callback<CardDataModel>() {
+            @Override
+            public ArrayList<CardDataModel> getData() {
+                return mEntries;
+            }
+
+            @Override
+            public void loadViewData(WeakReference<DeckChildView<CardDataModel>> dcv,
+                                     CardDataModel item) {
+                if (dcv.get() != null) {
+                    dcv.get().onDataLoaded(item, getThumbnail(item.id), mDefaultHeaderIcon,
+                            getTitle(item), Color.DKGRAY);
+                }
+            }
+
+            @Override
+            public void unloadViewData(CardDataModel item) {
+            }
+
+            @Override
+            public void onViewDismissed(CardDataModel item) {
+                int position = mEntries.indexOf(item);
+                mEntries.remove(position);
+                mDeckView.notifyItemRemoved(position);
+            }
+
+            @Override
+            public void onItemClick(CardDataModel item) {
+            }
+
+            @Override
+            public void onNoViewsToDeck() {
+            }
+        });
+        mDeckView.setFastScrollEnabled(true);
+        mDeckView.setTitleProvider(new DeckView.TitleProvider<CardDataModel>() {
+            @Override
+            public String getTitle(CardDataModel item) {
+                return DeckViewStressActivity.this.getTitle(item);
+            }
+        });
+        mDeckView.setFrameMetricsListener(new DeckView.FrameMetricsListener() {
+            @Override
+            public void onFrameMetrics(DeckViewFrameMetrics metrics) {
+                long frameNanos = metrics.getTotalNanos();
+                mFrameCount++;
+                mTotalFrameNanos += frameNanos;
+                mMaxFrameNanos = Math.max(mMaxFrameNanos, frameNanos);
+                mBindCount += metrics.bindCount;
+                mUnbindCount += metrics.unbindCount;
+            }
+        });
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        mHandler.postDelayed(mStatsRunnable, StatsIntervalMs);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            startVsyncCounting();
+        }
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        mHandler.removeCallbacksAndMessages(null);
+        mChurnEnabled = false;
+        mFlingEnabled = false;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            stopVsyncCounting();
+        }
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.menu_deck_view_stress, menu);
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        int id = item.getItemId();
+
+        if (id == R.id.action_count_1k) {
+            setItemCount(1000);
+        } else if (id == R.id.action_count_10k) {
+            setItemCount(10000);
+        } else if (id == R.id.action_count_100k) {
+            setItemCount(100000);
+        } else if (id == R.id.action_count_1m) {
+            setItemCount(1000000);
+        } else if (id == R.id.action_churn) {
+            mChurnEnabled = !mChurnEnabled;
+            mHandler.removeCallbacks(mChurnRunnable);
+            if (mChurnEnabled) {
+                mHandler.postDelayed(mChurnRunnable, ChurnIntervalMs);
+            }
+        } else if (id == R.id.action_fling) {
+            mFlingEnabled = !mFlingEnabled;
+            mHandler.removeCallbacks(mFlingRunnable);
+            if (mFlingEnabled) {
+                mHandler.post(mFlingRunnable);
+            }
+        } else if (id == R.id.action_debug_overlay) {
+            item.setChecked(!item.isChecked());
+            mDeckView.setDebugOverlayEnabled(item.isChecked());
+        } else {
+            return super.onOptionsItemSelected(item);
+        }
+        return true;
+    }
+
+    /**
+     * Replaces the items with the given number of new ones.
+     */
+    void setItemCount(int count) {
+        resetEntries(count);
+        mDeckView.notifyDataSetChanged();
+    }
+
+    void resetEntries(int count) {
+        mEntries.clear();
+        mEntries.ensureCapacity(count);
+        for (int i = 0; i < count; i++) {
+            mEntries.add(createEntry());
+        }
+    }
+
+    // The titles are generated when needed, a million strings would not fit in memory
+    CardDataModel createEntry() {
+        CardDataModel cardDataModel = new CardDataModel();
+        cardDataModel.id = ++mNextId;
+        return cardDataModel;
+    }
+
+    String getTitle(CardDataModel item) {
+        return (item.title != null) ? item.title : "Card " + item.id;
+    }
+
+    /**
+     * Returns the thumbnail of the item, generating it if it is not cached.  The thumbnails
+     * differ in size and color by item, so that the deck can't share one bitmap between cards.
+     */
+    Bitmap getThumbnail(int id) {
+        Bitmap thumbnail = mThumbnails.get(id);
+        if (thumbnail != null) {
+            mThumbnailHits++;
+            return thumbnail;
+        }
+        mThumbnailMisses++;
+
+        int width = 128 + (id * 37 % 5) * 96;
+        int height = width * 3 / 4;
+        thumbnail = Bitmap.createBitmap(width, height, Bitmap.Config.RGB_565);
+        mThumbnailCanvas.setBitmap(thumbnail);
+        mThumbnailCanvas.drawColor(Color.HSVToColor(new float[]{(id * 47) % 360, 0.5f, 0.8f}));
+        mThumbnailPaint.setTextSize(height / 4);
+        mThumbnailCanvas.drawText(String.valueOf(id), width / 2, height / 2, mThumbnailPaint);
+        mThumbnailCanvas.setBitmap(null);
+        mThumbnails.put(id, thumbnail);
+        return thumbnail;
+    }
+
+    // Inserts or removes an item at a random index
+    Runnable mChurnRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (mRandom.nextBoolean() || mEntries.isEmpty()) {
+                int position = mRandom.nextInt(mEntries.size() + 1);
+                mEntries.add(position, createEntry());
+                mDeckView.notifyItemInserted(position);
+            } else {
+                int position = mRandom.nextInt(mEntries.size());
+                mEntries.remove(position);
+                mDeckView.notifyItemRemoved(position);
+            }
+            mHandler.postDelayed(this, ChurnIntervalMs);
+        }
+    };
+
+    // Flings the deck up and down in turn
+    Runnable mFlingRunnable = new Runnable() {
+        @Override
+        public void run() {
+            injectFling(mFlingUp);
+            mFlingUp = !mFlingUp;
+            mHandler.postDelayed(this, FlingIntervalMs);
+        }
+    };
+
+    /**
+     * Sends a quick swipe through the deck, with event times spaced out so that the touch
+     * handler sees a fling.
+     */
+    void injectFling(boolean up) {
+        float x = mDeckView.getWidth() / 2f;
+        float fromY = mDeckView.getHeight() * (up ? 0.8f : 0.2f);
+        float toY = mDeckView.getHeight() * (up ? 0.2f : 0.8f);
+        long downTime = SystemClock.uptimeMillis();
+        dispatchTouch(downTime, downTime, MotionEvent.ACTION_DOWN, x, fromY);
+        for (int i = 1; i <= FlingSteps; i++) {
+            float y = fromY + (toY - fromY) * i / FlingSteps;
+            dispatchTouch(downTime, downTime + i * FlingStepMs, MotionEvent.ACTION_MOVE, x, y);
+        }
+        dispatchTouch(downTime, downTime + FlingSteps * FlingStepMs, MotionEvent.ACTION_UP, x,
+                toY);
+    }
+
+    void dispatchTouch(long downTime, long eventTime, int action, float x, float y) {
+        MotionEvent ev = MotionEvent.obtain(downTime, eventTime, action, x, y, 0);
+        mDeckView.dispatchTouchEvent(ev);
+        ev.recycle();
+    }
+
+    // Shows the frame stats gathered since the last readout
+    Runnable mStatsRunnable = new Runnable() {
+        @Override
+        public void run() {
+            int thumbnailTotal = mThumbnailHits + mThumbnailMisses;
+            mStatsView.setText(String.format(Locale.US,
+                    "items %d  frames %d  jank %d/%d\n"
+                            + "deck avg %.2fms max %.2fms  binds %d unbinds %d\n"
+                            + "thumbnails %d%% hit  views created %d reused %d",
+                    mEntries.size(), mFrameCount, mJankCount, mVsyncCount,
+                    mFrameCount > 0 ? mTotalFrameNanos / 1e6f / mFrameCount : 0f,
+                    mMaxFrameNanos / 1e6f, mBindCount, mUnbindCount,
+                    thumbnailTotal > 0 ? 100 * mThumbnailHits / thumbnailTotal : 0,
+                    mDeckView.getCreatedTaskViewCount(), mDeckView.getReusedTaskViewCount()));
+            mFrameCount = 0;
+            mTotalFrameNanos = 0;
+            mMaxFrameNanos = 0;
+            mBindCount = 0;
+            mUnbindCount = 0;
+            mVsyncCount = 0;
+            mJankCount = 0;
+            mHandler.postDelayed(this, StatsIntervalMs);
+        }
+    };
+
+    /**
+     * Counts the frames, and the ones that took longer than a vsync.
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    void startVsyncCounting() {
+        mLastVsyncNanos = 0;
+        mFrameCallback = new Choreographer.FrameCallback() {
+            @Override
+            public void doFrame(long frameTimeNanos) {
+                if (mLastVsyncNanos > 0) {
+                    mVsyncCount++;
+                    if (frameTimeNanos - mLastVsyncNanos > JankFrameNanos) {
+                        mJankCount++;
+                    }
+                }
+                mLastVsyncNanos = frameTimeNanos;
+                Choreographer.getInstance().postFrameCallback(this);
+            }
+        };
+        Choreographer.getInstance().postFrameCallback(mFrameCallback);
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    void stopVsyncCounting() {
+        if (mFrameCallback != null) {
+            Choreographer.getInstance().removeFrameCallback(mFrameCallback);
+            mFrameCallback = null;
+        }
+    }
+}